@@ -0,0 +1,951 @@
+package mancala;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * The AI agent for mancala games
+ * 
+ * The agent runs an iterative deepening principal variation search (a form of
+ * alpha-beta search that probes every move after the first with a null window,
+ * only re-searching it with the full window when it turns out to be better).
+ * Since there are only six possible moves per ply, the order they are tried in
+ * decides how early the search cuts off, so moves are ordered using killer
+ * moves and a history heuristic table indexed by pit
+ * 
+ * Each ply of the search is a whole turn: an {@link ExtraTurnChainSolver} works
+ * out every distinct position the player's turn can end in (following every
+ * chain of extra turns once), and those positions are what the search expands.
+ * The chain of moves behind the best turn is remembered, so when the agent earns
+ * an extra turn it plays the next move of that chain instead of searching again
+ * 
+ * @author Michael Opheim
+ * @version 05/15/2023
+ */
+public class ArtificialIntelligenceAgent {
+
+	/**
+	 * The policies the agent can use to decide the order in which it tries the
+	 * moves at each ply of its search
+	 */
+	public enum MoveOrdering {
+
+		/** Moves are tried from hole 0 to hole 5 */
+		NATURAL,
+
+		/** Moves are tried in order of how often they have caused cutoffs */
+		HISTORY,
+
+		/**
+		 * Moves that caused cutoffs at the same ply are tried first, followed by the
+		 * remaining moves in history order
+		 */
+		KILLER_HISTORY
+	}
+
+	/**
+	 * The strengths the agent can play at. Every level runs the same search; the
+	 * weaker levels are simply given a smaller depth, node and time budget and
+	 * sometimes play a random move instead of searching at all, so they cost very
+	 * little to run
+	 */
+	public enum Difficulty {
+
+		/** Searches one turn ahead and plays a random move half of the time */
+		BEGINNER("Beginner", 1, 200, 5, 0.5),
+
+		/** Searches two turns ahead and plays a random move a quarter of the time */
+		EASY("Easy", 2, 2_000, 10, 0.25),
+
+		/** Searches three turns ahead and occasionally plays a random move */
+		MEDIUM("Medium", 3, 20_000, 50, 0.1),
+
+		/** Searches six turns ahead and always plays the best move it finds */
+		HARD("Hard", DEFAULT_SEARCH_DEPTH, 500_000, 500, 0),
+
+		/** Searches as deep as it can within a second */
+		EXPERT("Expert", MAX_PLY - 1, 20_000_000, 1_000, 0);
+
+		/** The name of the level shown to players */
+		private final String displayName;
+
+		/** The deepest (in turns) the agent searches to */
+		private final int searchDepth;
+
+		/** The most positions the agent visits while searching for a move */
+		private final long nodeBudget;
+
+		/** The most time (in milliseconds) the agent spends searching for a move */
+		private final long timeBudgetMillis;
+
+		/** The chance that the agent plays a random move instead of searching */
+		private final double randomness;
+
+		/**
+		 * Constructor
+		 * 
+		 * @param displayName      The name of the level shown to players
+		 * @param searchDepth      The deepest (in turns) the agent searches to
+		 * @param nodeBudget       The most positions the agent visits per move
+		 * @param timeBudgetMillis The most time (in milliseconds) the agent spends
+		 *                         per move
+		 * @param randomness       The chance that the agent plays a random move
+		 */
+		Difficulty(String displayName, int searchDepth, long nodeBudget, long timeBudgetMillis, double randomness) {
+			this.displayName = displayName;
+			this.searchDepth = searchDepth;
+			this.nodeBudget = nodeBudget;
+			this.timeBudgetMillis = timeBudgetMillis;
+			this.randomness = randomness;
+		}
+
+		/**
+		 * The getter for the deepest the agent searches to at this level
+		 * 
+		 * @return the search depth (in turns)
+		 */
+		public int getSearchDepth() {
+			return searchDepth;
+		}
+
+		/**
+		 * The getter for the most positions the agent visits per move at this level
+		 * 
+		 * @return the node budget
+		 */
+		public long getNodeBudget() {
+			return nodeBudget;
+		}
+
+		/**
+		 * The getter for the most time the agent spends per move at this level
+		 * 
+		 * @return the time budget in milliseconds
+		 */
+		public long getTimeBudgetMillis() {
+			return timeBudgetMillis;
+		}
+
+		/**
+		 * The getter for the chance that the agent plays a random move at this level
+		 * 
+		 * @return the chance (between 0 and 1) of a random move
+		 */
+		public double getRandomness() {
+			return randomness;
+		}
+
+		@Override
+		public String toString() {
+			return displayName;
+		}
+	}
+
+	/** The search depth (in turns) used when none is specified */
+	public static final int DEFAULT_SEARCH_DEPTH = 6;
+
+	/** The deepest ply (turn) the search can reach */
+	private static final int MAX_PLY = 64;
+
+	/** The deepest search depth (in turns) an agent can be given */
+	static final int MAX_SEARCH_DEPTH = MAX_PLY - 1;
+
+	/** The number of holes on each player's side of the board */
+	private static final int HOLES = 6;
+
+	/** A score larger than any score a mancala game can produce */
+	private static final int INFINITY = 1000;
+
+	/** How often (as a bit mask on the node count) the time budget is checked */
+	private static final int TIME_CHECK_INTERVAL = 1023;
+
+	/** The number of killer moves remembered for each ply */
+	private static final int KILLERS_PER_PLY = 2;
+
+	/** The depth (in turns) the agent searches to */
+	private final int searchDepth;
+
+	/** The move ordering policy the agent uses */
+	private final MoveOrdering moveOrdering;
+
+	/** The most positions the agent visits while searching for a move */
+	private final long nodeBudget;
+
+	/** The most time (in nanoseconds) the agent spends searching for a move */
+	private final long timeBudgetNanos;
+
+	/** The chance that the agent plays a random move instead of searching */
+	private final double randomness;
+
+	/** The source of the agent's random moves */
+	private final Random random;
+
+	/** Whether optimalMove prints the AI's logic to the console */
+	private boolean verbose;
+
+	/** The System.nanoTime value at which the current search started */
+	private long searchStartTime;
+
+	/** Whether the current search has run out of its node or time budget */
+	private boolean outOfBudget;
+
+	/** The number of memo hits the turn solvers have had in the current search */
+	private long memoHits;
+
+	/** The number of memo misses the turn solvers have had in the current search */
+	private long memoMisses;
+
+	/** The simulated game the search starts from */
+	private final MancalaModel rootModel;
+
+	/**
+	 * The solver that finds the turns available at each ply of the search (created
+	 * the first time the search reaches the ply, and reused after that)
+	 */
+	private final ExtraTurnChainSolver[] plySolvers;
+
+	/**
+	 * The turns available at each ply (as results of the ply's solver), in the
+	 * order they will be tried
+	 */
+	private final int[][] plyMoves;
+
+	/** The ordering scores of the turns available at each ply */
+	private final int[][] plyMoveScores;
+
+	/** The score of each move at the root of the most recent search */
+	private final int[] rootScores;
+
+	/** The score of each move at the root of the current iteration */
+	private final int[] iterationScores;
+
+	/** The moves that most recently caused a cutoff at each ply */
+	private final int[][] killerMoves;
+
+	/**
+	 * How much each hole has contributed to cutoffs for each player (indexed by
+	 * player and then hole)
+	 */
+	private final int[][] historyTable;
+
+	/** The number of positions visited during the most recent search */
+	private long nodeCount;
+
+	/** The holes of the best turn found by the most recent search */
+	private final int[] plannedChain;
+
+	/** The high half of the key of the game before each move of the planned turn */
+	private final long[] plannedKeysHigh;
+
+	/** The low half of the key of the game before each move of the planned turn */
+	private final long[] plannedKeysLow;
+
+	/** The number of moves in the planned turn */
+	private int plannedLength;
+
+	/** The number of moves of the planned turn already played */
+	private int plannedStep;
+
+	/** The simulated game used to work out the keys of the planned turn */
+	private final MancalaModel planModel;
+
+	/**
+	 * Constructor
+	 */
+	public ArtificialIntelligenceAgent() {
+		this(DEFAULT_SEARCH_DEPTH, MoveOrdering.KILLER_HISTORY);
+	}
+
+	/**
+	 * Constructor
+	 * 
+	 * @param searchDepth  The depth (in turns) the agent searches to
+	 * @param moveOrdering The move ordering policy the agent uses
+	 */
+	public ArtificialIntelligenceAgent(int searchDepth, MoveOrdering moveOrdering) {
+		this(searchDepth, moveOrdering, Long.MAX_VALUE, Long.MAX_VALUE, 0, new Random());
+	}
+
+	/**
+	 * Constructor
+	 * 
+	 * @param difficulty The strength the agent plays at
+	 */
+	public ArtificialIntelligenceAgent(Difficulty difficulty) {
+		this(difficulty, new Random());
+	}
+
+	/**
+	 * Constructor
+	 * 
+	 * @param difficulty The strength the agent plays at
+	 * @param random     The source of the agent's random moves
+	 */
+	public ArtificialIntelligenceAgent(Difficulty difficulty, Random random) {
+		this(difficulty.getSearchDepth(), MoveOrdering.KILLER_HISTORY, difficulty.getNodeBudget(),
+				difficulty.getTimeBudgetMillis(), difficulty.getRandomness(), random);
+	}
+
+	/**
+	 * Constructor
+	 * 
+	 * @param searchDepth      The depth (in turns) the agent searches to
+	 * @param moveOrdering     The move ordering policy the agent uses
+	 * @param nodeBudget       The most positions the agent visits per move
+	 * @param timeBudgetMillis The most time (in milliseconds) the agent spends per
+	 *                         move
+	 * @param randomness       The chance that the agent plays a random move
+	 * @param random           The source of the agent's random moves
+	 */
+	ArtificialIntelligenceAgent(int searchDepth, MoveOrdering moveOrdering, long nodeBudget,
+			long timeBudgetMillis, double randomness, Random random) {
+		if (searchDepth < 1 || searchDepth > MAX_SEARCH_DEPTH) {
+			throw new IllegalArgumentException("Search depth must be between 1 and " + MAX_SEARCH_DEPTH);
+		}
+		this.searchDepth = searchDepth;
+		this.moveOrdering = moveOrdering;
+		this.nodeBudget = nodeBudget;
+		this.timeBudgetNanos = (timeBudgetMillis >= Long.MAX_VALUE / 1_000_000) ? Long.MAX_VALUE
+				: timeBudgetMillis * 1_000_000;
+		this.randomness = randomness;
+		this.random = random;
+
+		// Allocate everything the search needs up front (the solvers and move lists
+		// grow as the search needs them)
+		rootModel = new MancalaModel();
+		plySolvers = new ExtraTurnChainSolver[MAX_PLY];
+		plyMoves = new int[MAX_PLY][HOLES];
+		plyMoveScores = new int[MAX_PLY][HOLES];
+		plannedChain = new int[ExtraTurnChainSolver.MAX_CHAIN_LENGTH];
+		plannedKeysHigh = new long[ExtraTurnChainSolver.MAX_CHAIN_LENGTH];
+		plannedKeysLow = new long[ExtraTurnChainSolver.MAX_CHAIN_LENGTH];
+		planModel = new MancalaModel();
+		rootScores = new int[HOLES];
+		iterationScores = new int[HOLES];
+		killerMoves = new int[MAX_PLY][KILLERS_PER_PLY];
+		historyTable = new int[2][HOLES];
+	}
+
+	/**
+	 * A method that allows the AI agent to pick the optimal move for a turn,
+	 * printing the AI's logic to the console if the agent is verbose
+	 * 
+	 * @param model           A reference to the model
+	 * @param recursiveIndent a String that indents console output based on
+	 *                        recursion for easier reading of the AI's logic
+	 * @return the most optimal move for the AI to take
+	 */
+	public int optimalMove(MancalaModel model, String recursiveIndent) {
+
+		// Create a variable to store the AI agent's optimal move
+		int optimalMove = 0;
+
+		// Store the state of the current game so we can run simulations on it without
+		// altering our actual game
+		MancalaModel aiModel = new MancalaModel();
+		aiModel.copy(model.getBoard(), 1, model.getP1Store(), model.getP2Store());
+
+		// Weaker AI players sometimes play a random move without searching at all
+		if (playsRandomMove()) {
+			return randomMove(aiModel);
+		}
+
+		// If the AI earned an extra turn, carry on with the turn the last search
+		// planned
+		optimalMove = plannedMove(aiModel);
+		if (optimalMove != -1) {
+			return optimalMove;
+		}
+
+		// Run simulations on the game to find an optimal move for our AI MAX player
+		optimalMove = findOptimalMove(aiModel, recursiveIndent).getHole();
+
+		// Return the most optimal move once we have found it via our simulations
+		return optimalMove;
+	}
+
+	/**
+	 * A method that picks the optimal move for whichever player's turn it is,
+	 * without printing the AI's logic to the console
+	 * 
+	 * @param model A reference to the model
+	 * @return the most optimal move for the current player to take
+	 */
+	public int chooseMove(MancalaModel model) {
+		if (playsRandomMove()) {
+			return randomMove(model);
+		}
+		int plannedMove = plannedMove(model);
+		if (plannedMove != -1) {
+			return plannedMove;
+		}
+		return search(model).getHole();
+	}
+
+	/**
+	 * A method that looks up the next move of the turn planned by the most recent
+	 * search, which can be played without searching again as long as the game is
+	 * where the plan expects it to be
+	 * 
+	 * @param model The game to pick a move in
+	 * @return the next move of the planned turn, or -1 if the game is not part way
+	 *         through it
+	 */
+	private int plannedMove(MancalaModel model) {
+		boolean planned = plannedStep < plannedLength
+				&& ExtraTurnChainSolver.keyHigh(model) == plannedKeysHigh[plannedStep]
+				&& ExtraTurnChainSolver.keyLow(model) == plannedKeysLow[plannedStep];
+		if (!planned) {
+			return -1;
+		}
+		EngineMetrics.getInstance().recordPlannedMove();
+		return plannedChain[plannedStep++];
+	}
+
+	/**
+	 * A method that remembers the chain of moves behind a turn, along with the game
+	 * before each move, so the rest of the turn can be played without searching
+	 * 
+	 * @param solver The solver holding the turn
+	 * @param result The turn (a result of the solver)
+	 * @param start  The game the turn starts from
+	 */
+	private void planTurn(ExtraTurnChainSolver solver, int result, MancalaModel start) {
+		planModel.copy(start.getBoard(), start.getCurrentPlayer(), start.getP1Store(), start.getP2Store());
+		plannedLength = solver.getChainLength(result);
+		for (int move = 0; move < plannedLength; move++) {
+			plannedChain[move] = solver.getChainHole(result, move);
+			plannedKeysHigh[move] = ExtraTurnChainSolver.keyHigh(planModel);
+			plannedKeysLow[move] = ExtraTurnChainSolver.keyLow(planModel);
+			planModel.moveStones(plannedChain[move]);
+		}
+
+		// The search plays the first move itself
+		plannedStep = 1;
+	}
+
+	/**
+	 * A method that decides whether the agent plays a random move this turn
+	 * 
+	 * @return true if the agent should play a random move, and false otherwise
+	 */
+	private boolean playsRandomMove() {
+		return randomness > 0 && random.nextDouble() < randomness;
+	}
+
+	/**
+	 * A method that picks a random hole containing stones for the current player
+	 * 
+	 * @param model The game to pick a move in
+	 * @return a random valid move for the current player
+	 */
+	private int randomMove(MancalaModel model) {
+		int legalMoves = model.getLegalMoves();
+		if (legalMoves == 0) {
+			return 0;
+		}
+
+		// Drop holes from the bottom of the mask until the chosen hole is the lowest
+		for (int choice = random.nextInt(Integer.bitCount(legalMoves)); choice > 0; choice--) {
+			legalMoves &= legalMoves - 1;
+		}
+		return Integer.numberOfTrailingZeros(legalMoves);
+	}
+
+	/**
+	 * The setter for whether optimalMove prints the AI's logic to the console (it
+	 * does not by default)
+	 * 
+	 * @param verbose Whether to print the score of every move after a search
+	 */
+	public void setVerbose(boolean verbose) {
+		this.verbose = verbose;
+	}
+
+	/**
+	 * The getter for the number of positions visited during the most recent search
+	 * 
+	 * @return the number of positions the most recent search visited
+	 */
+	public long getNodeCount() {
+		return nodeCount;
+	}
+
+	/**
+	 * The getter for the move ordering policy the agent uses
+	 * 
+	 * @return the agent's move ordering policy
+	 */
+	public MoveOrdering getMoveOrdering() {
+		return moveOrdering;
+	}
+
+	/**
+	 * The getter for the depth the agent searches to
+	 * 
+	 * @return the depth (in turns) the agent searches to
+	 */
+	public int getSearchDepth() {
+		return searchDepth;
+	}
+
+	/**
+	 * The getter for the most positions the agent visits per move
+	 * 
+	 * @return the agent's node budget, or Long.MAX_VALUE if it has none
+	 */
+	public long getNodeBudget() {
+		return nodeBudget;
+	}
+
+	/**
+	 * The getter for the most time the agent spends per move
+	 * 
+	 * @return the agent's time budget in milliseconds, or Long.MAX_VALUE if it has
+	 *         none
+	 */
+	public long getTimeBudgetMillis() {
+		return (timeBudgetNanos == Long.MAX_VALUE) ? Long.MAX_VALUE : timeBudgetNanos / 1_000_000;
+	}
+
+	/**
+	 * The getter for the chance that the agent plays a random move
+	 * 
+	 * @return the agent's randomness (0 to 1)
+	 */
+	public double getRandomness() {
+		return randomness;
+	}
+
+	/**
+	 * A method that searches the same position once with each move ordering
+	 * policy, so the number of positions each policy has to visit can be compared
+	 * 
+	 * @param model       The game to search
+	 * @param searchDepth The depth (in turns) to search to
+	 * @return the number of positions visited by each move ordering policy
+	 */
+	public static Map<MoveOrdering, Long> countNodesPerOrdering(MancalaModel model, int searchDepth) {
+		Map<MoveOrdering, Long> nodeCounts = new EnumMap<>(MoveOrdering.class);
+		for (MoveOrdering ordering : MoveOrdering.values()) {
+			ArtificialIntelligenceAgent agent = new ArtificialIntelligenceAgent(searchDepth, ordering);
+			agent.search(model);
+			nodeCounts.put(ordering, agent.getNodeCount());
+		}
+		return nodeCounts;
+	}
+
+	/**
+	 * A method that does the work to find the most optimal move for the AI player
+	 * 
+	 * @param board           A simulated board of some state
+	 * @param recursiveIndent a String that indents console output based on
+	 *                        recursion for easier reading of the AI's logic
+	 * @return The most optimal move for the AI player
+	 */
+	private BestMoveBoardValue findOptimalMove(MancalaModel aiModel, String recursiveIndent) {
+
+		// Search the game, deepening one ply at a time
+		BestMoveBoardValue optimalMove = search(aiModel);
+		if (!verbose) {
+			return optimalMove;
+		}
+
+		// Report the score of every move from the deepest completed iteration
+		int[] board = aiModel.getBoard()[aiModel.getCurrentPlayer()];
+		for (int hole = 0; hole < HOLES; hole++) {
+			if (board[hole] != 0) {
+				System.out.println(recursiveIndent + "Hole: " + hole + " - Resulting Score: "
+						+ rootScores[hole] + "\n");
+			} else {
+				System.out.println(recursiveIndent + "Hole " + hole + " is empty\n");
+			}
+		}
+
+		System.out.println(recursiveIndent + "Most optimal move: " + optimalMove.getHole() + " Value: "
+				+ optimalMove.getValue() + " Nodes: " + nodeCount);
+
+		return optimalMove; // Return the most optimal move for the AI agent
+	}
+
+	/**
+	 * A method that runs an iterative deepening search from the given game for the
+	 * player whose turn it is
+	 * 
+	 * @param aiModel The game to search
+	 * @return the best move found and the store difference it leads to
+	 */
+	private BestMoveBoardValue search(MancalaModel aiModel) {
+
+		// Reset the statistics and move ordering information from previous searches
+		EngineMetrics metrics = EngineMetrics.getInstance();
+		long startTime = System.nanoTime();
+		long allocatedBytesAtStart = metrics.currentThreadAllocatedBytes();
+		nodeCount = 0;
+		memoHits = 0;
+		memoMisses = 0;
+		outOfBudget = false;
+		searchStartTime = startTime;
+		for (int[] killers : killerMoves) {
+			killers[0] = -1;
+			killers[1] = -1;
+		}
+		for (int[] history : historyTable) {
+			for (int hole = 0; hole < HOLES; hole++) {
+				history[hole] = 0;
+			}
+		}
+
+		MancalaModel root = rootModel;
+		root.copy(aiModel.getBoard(), aiModel.getCurrentPlayer(), aiModel.getP1Store(), aiModel.getP2Store());
+		int player = root.getCurrentPlayer();
+		plannedLength = 0;
+		plannedStep = 0;
+		ExtraTurnChainSolver rootSolver = solveTurns(0, root);
+
+		// Try the best turn of the previous iteration first in the next one
+		BestMoveBoardValue optimalMove = new BestMoveBoardValue(-INFINITY, 0);
+		int bestTurn = -1;
+		for (int depth = 1; depth <= searchDepth; depth++) {
+			int alpha = -INFINITY;
+			int iterationBestTurn = -1;
+			Arrays.fill(iterationScores, -INFINITY);
+
+			int moveCount = orderMoves(0, rootSolver, player, bestTurn);
+			for (int i = 0; i < moveCount; i++) {
+				int turn = plyMoves[0][i];
+				int score;
+				if (i == 0) {
+					score = searchTurn(0, turn, player, depth, -INFINITY, INFINITY);
+				} else {
+					score = searchTurn(0, turn, player, depth, alpha, alpha + 1);
+					if (score > alpha) {
+						score = searchTurn(0, turn, player, depth, alpha, INFINITY);
+					}
+				}
+
+				// A turn whose search ran out of budget has no score
+				if (outOfBudget) {
+					break;
+				}
+
+				// A hole's score is the score of the best turn starting with it
+				int hole = rootSolver.getFirstHole(turn);
+				iterationScores[hole] = Math.max(iterationScores[hole], score);
+				if (score > alpha) {
+					alpha = score;
+					iterationBestTurn = turn;
+				}
+			}
+
+			// Stop if the AI has no moves to make, or throw away an unfinished iteration
+			// if the AI has run out of budget (unless it is the first, in which case the
+			// best turn it finished is played, or failing that the first turn in order)
+			if (iterationBestTurn == -1 || outOfBudget) {
+				if (outOfBudget && bestTurn == -1 && moveCount > 0) {
+					bestTurn = (iterationBestTurn != -1) ? iterationBestTurn : plyMoves[0][0];
+					optimalMove.setValue(alpha);
+					optimalMove.setHole(rootSolver.getFirstHole(bestTurn));
+					System.arraycopy(iterationScores, 0, rootScores, 0, HOLES);
+				}
+				break;
+			}
+			bestTurn = iterationBestTurn;
+			optimalMove.setValue(alpha);
+			optimalMove.setHole(rootSolver.getFirstHole(bestTurn));
+			System.arraycopy(iterationScores, 0, rootScores, 0, HOLES);
+		}
+
+		// Remember the rest of the best turn in case it is made of extra turns
+		if (bestTurn != -1) {
+			planTurn(rootSolver, bestTurn, root);
+		}
+
+		metrics.recordMove(System.nanoTime() - startTime, nodeCount, allocatedBytesAtStart);
+		metrics.recordCacheLookups(memoHits, memoMisses);
+		return optimalMove;
+	}
+
+	/**
+	 * A method that finds every turn available from the game at a ply
+	 * 
+	 * @param ply      The ply of the game
+	 * @param position The game at that ply
+	 * @return the ply's solver, holding the turns
+	 */
+	private ExtraTurnChainSolver solveTurns(int ply, MancalaModel position) {
+		ExtraTurnChainSolver solver = plySolvers[ply];
+		if (solver == null) {
+			solver = new ExtraTurnChainSolver();
+			plySolvers[ply] = solver;
+		}
+		solver.solve(position);
+		memoHits += solver.getMemoHits();
+		memoMisses += solver.getMemoMisses();
+		return solver;
+	}
+
+	/**
+	 * A method that takes a turn from the game at a ply and scores the result for
+	 * the player who took the turn
+	 * 
+	 * @param ply    The ply the turn is taken from
+	 * @param turn   The turn (a result of the ply's solver)
+	 * @param player The player taking the turn
+	 * @param depth  The remaining search depth before the turn
+	 * @param alpha  The score the player is already guaranteed
+	 * @param beta   The score the opponent is already guaranteed to hold the
+	 *               player to
+	 * @return the score of the turn for the player who took it
+	 */
+	private int searchTurn(int ply, int turn, int player, int depth, int alpha, int beta) {
+		MancalaModel child = plySolvers[ply].getResult(turn);
+
+		// A turn only leaves the same player to move if it ended the game, in which
+		// case the score is not negated
+		if (child.getCurrentPlayer() == player) {
+			return principalVariationSearch(child, ply + 1, depth - 1, alpha, beta);
+		}
+		return -principalVariationSearch(child, ply + 1, depth - 1, -beta, -alpha);
+	}
+
+	/**
+	 * A method that scores the game at a ply for the player whose turn it is,
+	 * assuming both players make the moves that are most optimal for them
+	 * 
+	 * @param position The game at the ply
+	 * @param ply      The ply of the game being scored
+	 * @param depth    The remaining search depth
+	 * @param alpha    The score the player is already guaranteed
+	 * @param beta     The score the opponent is already guaranteed to hold the
+	 *                 player to
+	 * @return the score of the game for the player whose turn it is
+	 */
+	private int principalVariationSearch(MancalaModel position, int ply, int depth, int alpha, int beta) {
+
+		// Once the AI has run out of budget, unwind the search as quickly as possible
+		if (outOfBudget) {
+			return 0;
+		}
+		nodeCount++;
+		if ((nodeCount >= nodeBudget
+				|| ((nodeCount & TIME_CHECK_INTERVAL) == 0 && System.nanoTime() - searchStartTime > timeBudgetNanos))) {
+			outOfBudget = true;
+			return 0;
+		}
+		int player = position.getCurrentPlayer();
+
+		// If the game is over, score it with the remaining stones added to the stores
+		if (position.isWinningState()) {
+			return evaluateFinal(position, player);
+		}
+
+		// If we have searched as deep as we can, score the game as it is
+		if (depth <= 0 || ply >= MAX_PLY - 1) {
+			return evaluate(position, player);
+		}
+
+		ExtraTurnChainSolver solver = solveTurns(ply, position);
+		int moveCount = orderMoves(ply, solver, player, -1);
+		for (int i = 0; i < moveCount; i++) {
+			int turn = plyMoves[ply][i];
+			int score;
+
+			// Search the first turn with the full window and the rest with a null window,
+			// re-searching any turn that turns out to be better than the first
+			if (i == 0) {
+				score = searchTurn(ply, turn, player, depth, alpha, beta);
+			} else {
+				score = searchTurn(ply, turn, player, depth, alpha, alpha + 1);
+				if (score > alpha && score < beta) {
+					score = searchTurn(ply, turn, player, depth, alpha, beta);
+				}
+			}
+
+			if (score > alpha) {
+				alpha = score;
+
+				// The opponent will never allow this game, so stop searching it
+				if (alpha >= beta) {
+					recordCutoff(ply, player, solver.getFirstHole(turn), depth);
+					break;
+				}
+			}
+		}
+
+		return alpha;
+	}
+
+	/**
+	 * A method that fills in the turns available at a ply in the order they should
+	 * be tried. Turns are ordered by the hole they start with
+	 * 
+	 * @param ply       The ply of the game
+	 * @param solver    The ply's solver, holding the turns
+	 * @param player    The player taking the turns
+	 * @param firstTurn A turn to try before every other turn, or -1 for none
+	 * @return the number of turns available
+	 */
+	private int orderMoves(int ply, ExtraTurnChainSolver solver, int player, int firstTurn) {
+		int turnCount = solver.getResultCount();
+		if (turnCount > plyMoves[ply].length) {
+			plyMoves[ply] = new int[turnCount];
+			plyMoveScores[ply] = new int[turnCount];
+		}
+		int[] moves = plyMoves[ply];
+		int[] scores = plyMoveScores[ply];
+		int moveCount = 0;
+
+		// Go through the turns in the order the solver found them
+		for (int turn = 0; turn < turnCount; turn++) {
+			int hole = solver.getFirstHole(turn);
+
+			// Score the turn according to the ordering policy
+			int score = 0;
+			if (turn == firstTurn) {
+				score = Integer.MAX_VALUE;
+			} else if (moveOrdering == MoveOrdering.KILLER_HISTORY && hole == killerMoves[ply][0]) {
+				score = Integer.MAX_VALUE - 1;
+			} else if (moveOrdering == MoveOrdering.KILLER_HISTORY && hole == killerMoves[ply][1]) {
+				score = Integer.MAX_VALUE - 2;
+			} else if (moveOrdering != MoveOrdering.NATURAL) {
+				score = historyTable[player][hole];
+			}
+
+			// Insert the turn so the turns stay sorted from highest to lowest score
+			int i = moveCount++;
+			while (i > 0 && scores[i - 1] < score) {
+				moves[i] = moves[i - 1];
+				scores[i] = scores[i - 1];
+				i--;
+			}
+			moves[i] = turn;
+			scores[i] = score;
+		}
+
+		return moveCount;
+	}
+
+	/**
+	 * A method that remembers a move that caused a cutoff so it can be tried
+	 * earlier in the rest of the search
+	 * 
+	 * @param ply    The ply the cutoff happened at
+	 * @param player The player who made the move
+	 * @param hole   The hole the move was made from
+	 * @param depth  The remaining search depth when the cutoff happened
+	 */
+	private void recordCutoff(int ply, int player, int hole, int depth) {
+		if (killerMoves[ply][0] != hole) {
+			killerMoves[ply][1] = killerMoves[ply][0];
+			killerMoves[ply][0] = hole;
+		}
+
+		// Cutoffs higher up in the search save more work, so they count for more
+		historyTable[player][hole] += depth * depth;
+	}
+
+	/**
+	 * A method that scores a game that has ended by how far ahead a player is once
+	 * each player's remaining stones are added to their store
+	 * 
+	 * @param position The game to score
+	 * @param player   The player to score the game for
+	 * @return the player's final store minus their opponent's final store
+	 */
+	private static int evaluateFinal(MancalaModel position, int player) {
+
+		// One of the rows is empty, so adding both rows gives the same result as
+		// addRemainingStonesToPlayersStore()
+		int difference = (position.getP2Store() + position.getRowSum(1))
+				- (position.getP1Store() + position.getRowSum(0));
+		return (player == 1) ? difference : -difference;
+	}
+
+	/**
+	 * A method that scores a game by how far ahead a player is in stones stored
+	 * 
+	 * @param position The game to score
+	 * @param player   The player to score the game for
+	 * @return the player's store minus their opponent's store
+	 */
+	private static int evaluate(MancalaModel position, int player) {
+		int difference = position.getP2Store() - position.getP1Store();
+		return (player == 1) ? difference : -difference;
+	}
+
+	/**
+	 * A class to store the best move possible for the AI MAX player
+	 * 
+	 * @author Michael Opheim
+	 * @version 05/15/2023
+	 */
+	private class BestMoveBoardValue {
+
+		/**
+		 * The value that the most optimal move will provide the AI MAX player, assuming
+		 * the MIN player makes the moves that are most optimal for them as well
+		 */
+		private int value;
+
+		/**
+		 * The number of the hole that will provide the most optimal move for the AI MAX
+		 * player
+		 */
+		private int hole;
+
+		/**
+		 * Constructor
+		 * 
+		 * @param value The possible point gain for the most optimal move
+		 * @param hole  The number of the hole that will provide the most optimal move
+		 *              for the AI MAX player
+		 */
+		public BestMoveBoardValue(int value, int hole) {
+			this.value = value;
+			this.hole = hole;
+		}
+
+		/**
+		 * The setter for the value of the most optimal move
+		 * 
+		 * @param value The possible point gain for the most optimal move
+		 */
+		public void setValue(int value) {
+			this.value = value;
+		}
+
+		/**
+		 * The getter the value of the most optimal move
+		 * 
+		 * @return the possible point gain for the most optimal move
+		 */
+		public int getValue() {
+			return this.value;
+		}
+
+		/**
+		 * The setter for the hole that will provide the AI MAX player with the most
+		 * optimal move
+		 * 
+		 * @param hole The number of the hole that will provide the most optimal move
+		 *             for the AI MAX player
+		 */
+		public void setHole(int hole) {
+			this.hole = hole;
+		}
+
+		/**
+		 * The getter for the hole that will provide the AI MAX player with the most
+		 * optimal move
+		 * 
+		 * @return the number of the hole that will provide the most optimal move for
+		 *         the AI MAX player
+		 */
+		public int getHole() {
+			return this.hole;
+		}
+	}
+}
\ No newline at end of file
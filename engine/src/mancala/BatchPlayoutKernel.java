@@ -0,0 +1,374 @@
+package mancala;
+
+import java.util.Arrays;
+
+/**
+ * Plays many independent mancala games with random moves in lockstep, for
+ * workloads such as rollouts and statistics gathering that need a large number
+ * of random playouts. The games are stored as a structure of arrays (one array
+ * per hole or store, holding that position for every game), so a step of every
+ * game can be made with the same instructions across many games at once
+ * 
+ * Each position is numbered as a slot: slots 0 to 5 are player 1's holes
+ * (row 0 of the model's board), slots 6 to 11 are player 2's holes (row 1),
+ * slot 12 is player 1's store and slot 13 is player 2's store. A game follows
+ * exactly the same rules as {@link MancalaModel#moveStones(int)}, and every
+ * game has its own random number generator so a kernel always plays the same
+ * games for the same seed, whichever implementation is used
+ * 
+ * @author Michael Opheim
+ * @version 05/15/2023
+ */
+public abstract class BatchPlayoutKernel {
+
+	/** The number of slots (holes and stores) in a game */
+	public static final int SLOTS = 14;
+
+	/** The slot of player 1's store */
+	public static final int P1_STORE = 12;
+
+	/** The slot of player 2's store */
+	public static final int P2_STORE = 13;
+
+	/** The number of positions a stone can be sown into (every slot but one store) */
+	protected static final int RING = 13;
+
+	/**
+	 * The position of each slot in the order player 1 sows stones (counting from
+	 * slot 5), or -1 if player 1 skips the slot
+	 */
+	protected static final int[] P1_RING_POSITION = { 5, 4, 3, 2, 1, 0, 7, 8, 9, 10, 11, 12, 6, -1 };
+
+	/**
+	 * The position of each slot in the order player 2 sows stones (counting from
+	 * slot 5), or -1 if player 2 skips the slot
+	 */
+	protected static final int[] P2_RING_POSITION = { 5, 4, 3, 2, 1, 0, 6, 7, 8, 9, 10, 11, -1, 12 };
+
+	/** The number of games played by the kernel */
+	protected final int games;
+
+	/** The number of games plus padding, so the arrays fill whole vectors */
+	protected final int capacity;
+
+	/** The stones in each slot of each game (indexed by slot and then game) */
+	protected final int[][] slots;
+
+	/** The player whose turn it is in each game (0 for player 1 and 1 for player 2) */
+	protected final int[] player;
+
+	/** Whether each game is still being played (1) or is over (0) */
+	protected final int[] active;
+
+	/** The state of each game's random number generator (never zero) */
+	protected final int[] random;
+
+	/** The hole (0 to 5) played in each game by the last step, or -1 for none */
+	protected final int[] lastMove;
+
+	/**
+	 * Constructor
+	 * 
+	 * @param games     The number of games to play
+	 * @param laneWidth The number of games the implementation steps at once
+	 */
+	protected BatchPlayoutKernel(int games, int laneWidth) {
+		if (games < 1) {
+			throw new IllegalArgumentException("At least one game is needed");
+		}
+		this.games = games;
+		capacity = ((games + laneWidth - 1) / laneWidth) * laneWidth;
+		slots = new int[SLOTS][capacity];
+		player = new int[capacity];
+		active = new int[capacity];
+		random = new int[capacity];
+		lastMove = new int[capacity];
+	}
+
+	/**
+	 * A method that creates the fastest kernel available in the running JVM: the
+	 * vector kernel if the jdk.incubator.vector module is present (for example,
+	 * when the JVM is started with --add-modules jdk.incubator.vector), and the
+	 * scalar kernel otherwise
+	 * 
+	 * @param games The number of games to play
+	 * @param seed  The seed for the games' random moves
+	 * @return a new kernel with every game at the starting position
+	 */
+	public static BatchPlayoutKernel create(int games, long seed) {
+		if (ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+			try {
+				BatchPlayoutKernel kernel = new VectorBatchPlayoutKernel(games);
+				kernel.reset(seed);
+				return kernel;
+			} catch (LinkageError e) {
+				// Fall back to the scalar kernel below
+			}
+		}
+		BatchPlayoutKernel kernel = new ScalarBatchPlayoutKernel(games);
+		kernel.reset(seed);
+		return kernel;
+	}
+
+	/**
+	 * A method that puts every game back at the starting position, with player 1
+	 * to move
+	 * 
+	 * @param seed The seed for the games' random moves
+	 */
+	public void reset(long seed) {
+		for (int slot = 0; slot < SLOTS; slot++) {
+			Arrays.fill(slots[slot], 0, games, (slot < P1_STORE) ? 6 : 0);
+			Arrays.fill(slots[slot], games, capacity, 0);
+		}
+		Arrays.fill(player, 0);
+		Arrays.fill(active, 0, games, 1);
+		Arrays.fill(active, games, capacity, 0);
+		Arrays.fill(lastMove, -1);
+
+		// Give every game its own stream of random numbers derived from the seed
+		long state = seed;
+		for (int game = 0; game < capacity; game++) {
+			state += 0x9E3779B97F4A7C15L;
+			long mixed = (state ^ (state >>> 30)) * 0xBF58476D1CE4E5B9L;
+			mixed = (mixed ^ (mixed >>> 27)) * 0x94D049BB133111EBL;
+			int value = (int) (mixed ^ (mixed >>> 31));
+			random[game] = (value == 0) ? 1 : value;
+		}
+	}
+
+	/**
+	 * A method that puts one game at the position of a model
+	 * 
+	 * @param game  The game to change
+	 * @param model The model holding the position
+	 */
+	public void load(int game, MancalaModel model) {
+		int[][] board = model.getBoard();
+		for (int hole = 0; hole < 6; hole++) {
+			slots[hole][game] = board[0][hole];
+			slots[6 + hole][game] = board[1][hole];
+		}
+		slots[P1_STORE][game] = model.getP1Store();
+		slots[P2_STORE][game] = model.getP2Store();
+		player[game] = model.getCurrentPlayer();
+		active[game] = model.isWinningState() ? 0 : 1;
+		lastMove[game] = -1;
+	}
+
+	/**
+	 * A method that makes one random move in every game that is not over. A game
+	 * that ends has its remaining stones added to the players' stores, just like
+	 * {@link MancalaModel#addRemainingStonesToPlayersStore()}
+	 */
+	public abstract void step();
+
+	/**
+	 * A method that plays every game until it is over
+	 * 
+	 * @return the number of steps it took for every game to end
+	 */
+	public int playOut() {
+		int steps = 0;
+		while (countActiveGames() > 0) {
+			step();
+			steps++;
+		}
+		return steps;
+	}
+
+	/**
+	 * A method that plays random games from a position and counts who wins them.
+	 * Whenever a game ends, it is restarted from the position straight away, so
+	 * no game sits idle while the longer games finish
+	 * 
+	 * @param start    The position to play from
+	 * @param playouts The number of games to play
+	 * @return the number of games won by player 1 (index 0) and player 2 (index
+	 *         1), and the number of ties (index 2)
+	 */
+	public long[] runPlayouts(MancalaModel start, long playouts) {
+		long[] results = new long[3];
+		if (start.isWinningState()) {
+			results[outcome(start.getP1Store() + start.getRowSum(0), start.getP2Store() + start.getRowSum(1))] = playouts;
+			return results;
+		}
+
+		// Start as many games as are needed (up to one per game in the kernel)
+		long started = 0;
+		for (int game = 0; game < games; game++) {
+			if (started < playouts) {
+				load(game, start);
+				started++;
+			} else {
+				active[game] = 0;
+			}
+		}
+
+		long finished = 0;
+		while (finished < playouts) {
+			step();
+			for (int game = 0; game < games; game++) {
+				if (active[game] != 0 || lastMove[game] == -1) {
+					continue;
+				}
+
+				// The game ended on this step, so count it and start another if needed
+				results[outcome(slots[P1_STORE][game], slots[P2_STORE][game])]++;
+				finished++;
+				if (started < playouts) {
+					load(game, start);
+					started++;
+				}
+			}
+		}
+		return results;
+	}
+
+	/**
+	 * A method that finds the outcome of a finished game
+	 * 
+	 * @param p1Store The stones in player 1's store
+	 * @param p2Store The stones in player 2's store
+	 * @return 0 if player 1 won, 1 if player 2 won, and 2 if the game was a tie
+	 */
+	protected static int outcome(int p1Store, int p2Store) {
+		if (p1Store > p2Store) {
+			return 0;
+		} else if (p2Store > p1Store) {
+			return 1;
+		}
+		return 2;
+	}
+
+	/**
+	 * A method that counts the games that are not over
+	 * 
+	 * @return the number of games still being played
+	 */
+	public int countActiveGames() {
+		int count = 0;
+		for (int game = 0; game < games; game++) {
+			count += active[game];
+		}
+		return count;
+	}
+
+	/**
+	 * The getter for the number of games played by the kernel
+	 * 
+	 * @return the number of games
+	 */
+	public int getGameCount() {
+		return games;
+	}
+
+	/**
+	 * The getter for the stones in one slot of a game
+	 * 
+	 * @param game The game
+	 * @param slot The slot (0 to 13)
+	 * @return the number of stones in the slot
+	 */
+	public int getSlot(int game, int slot) {
+		return slots[slot][game];
+	}
+
+	/**
+	 * The getter for the player whose turn it is in a game
+	 * 
+	 * @param game The game
+	 * @return the current player (0 for player 1 and 1 for player 2)
+	 */
+	public int getCurrentPlayer(int game) {
+		return player[game];
+	}
+
+	/**
+	 * The getter for whether a game is over
+	 * 
+	 * @param game The game
+	 * @return true if the game is over, and false otherwise
+	 */
+	public boolean isGameOver(int game) {
+		return active[game] == 0;
+	}
+
+	/**
+	 * The getter for the hole played in a game by the last step
+	 * 
+	 * @param game The game
+	 * @return the hole (0 to 5) on the moving player's side, or -1 if the game was
+	 *         already over
+	 */
+	public int getLastMove(int game) {
+		return lastMove[game];
+	}
+
+	/**
+	 * A method that checks the kernel against MancalaModel: every game is copied
+	 * into a model before each step, the move the kernel picked is made with
+	 * moveStones, and the resulting positions are compared, until every game is
+	 * over (run by the command line's "playouts --verify")
+	 * 
+	 * @return true if every position matched, and false otherwise
+	 */
+	public boolean verifyAgainstModel() {
+		MancalaModel[] models = new MancalaModel[games];
+		for (int game = 0; game < games; game++) {
+			models[game] = new MancalaModel();
+			copyToModel(game, models[game]);
+		}
+
+		while (countActiveGames() > 0) {
+			step();
+			for (int game = 0; game < games; game++) {
+				MancalaModel model = models[game];
+				if (lastMove[game] == -1) {
+					continue;
+				}
+				model.moveStones(lastMove[game]);
+				if (model.isWinningState()) {
+					model.addRemainingStonesToPlayersStore();
+				}
+				if (!matchesModel(game, model)) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * A method that copies one game into a model
+	 * 
+	 * @param game  The game to copy
+	 * @param model The model to copy the game into
+	 */
+	public void copyToModel(int game, MancalaModel model) {
+		int[][] board = new int[2][6];
+		for (int hole = 0; hole < 6; hole++) {
+			board[0][hole] = slots[hole][game];
+			board[1][hole] = slots[6 + hole][game];
+		}
+		model.copy(board, player[game], slots[P1_STORE][game], slots[P2_STORE][game]);
+	}
+
+	/**
+	 * A method that checks whether one game is at the same position as a model
+	 * 
+	 * @param game  The game to check
+	 * @param model The model to compare the game with
+	 * @return true if the positions are the same, and false otherwise
+	 */
+	private boolean matchesModel(int game, MancalaModel model) {
+		int[][] board = model.getBoard();
+		for (int hole = 0; hole < 6; hole++) {
+			if (slots[hole][game] != board[0][hole] || slots[6 + hole][game] != board[1][hole]) {
+				return false;
+			}
+		}
+		return slots[P1_STORE][game] == model.getP1Store() && slots[P2_STORE][game] == model.getP2Store()
+				&& (active[game] == 0 || player[game] == model.getCurrentPlayer());
+	}
+}
\ No newline at end of file
@@ -0,0 +1,352 @@
+package mancala;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Records how the AI engine is performing: how long moves take, how many
+ * positions are searched, how well the caches work, how many games are being
+ * hosted and how much memory the searches allocate. Everything is recorded with
+ * lock-free counters once per move (never once per position), so recording does
+ * not slow the search down
+ * 
+ * @author Michael Opheim
+ * @version 05/15/2023
+ */
+public final class EngineMetrics implements EngineMetricsMBean {
+
+	/** The name the metrics are registered under in JMX */
+	public static final String OBJECT_NAME = "mancala:type=EngineMetrics";
+
+	/** The metrics shared by every part of the engine */
+	private static final EngineMetrics INSTANCE = new EngineMetrics();
+
+	/**
+	 * The number of latency histogram buckets (bucket i counts the moves that took
+	 * between 2^i and 2^(i+1) nanoseconds)
+	 */
+	private static final int LATENCY_BUCKETS = 64;
+
+	/** The latency histogram */
+	private final AtomicLongArray latencyBuckets;
+
+	/** The longest time (in nanoseconds) taken to find a move */
+	private final LongAccumulator maxLatencyNanos;
+
+	/** The total time (in nanoseconds) spent finding moves */
+	private final LongAdder totalLatencyNanos;
+
+	/** The number of moves searched for */
+	private final LongAdder moveCount;
+
+	/** The number of positions searched */
+	private final LongAdder nodeCount;
+
+	/** The number of cache lookups that found what they were looking for */
+	private final LongAdder cacheHits;
+
+	/** The number of cache lookups that did not find what they were looking for */
+	private final LongAdder cacheMisses;
+
+	/**
+	 * The number of moves played from the rest of a planned turn instead of
+	 * searching
+	 */
+	private final LongAdder plannedMoves;
+
+	/** The number of bytes allocated while searching */
+	private final LongAdder allocatedBytes;
+
+	/** The number of games currently being hosted */
+	private final LongAdder activeGames;
+
+	/** The JVM's thread bean, used to measure how much memory searches allocate */
+	private final com.sun.management.ThreadMXBean allocationBean;
+
+	/**
+	 * Constructor
+	 */
+	private EngineMetrics() {
+		latencyBuckets = new AtomicLongArray(LATENCY_BUCKETS);
+		maxLatencyNanos = new LongAccumulator(Math::max, 0);
+		totalLatencyNanos = new LongAdder();
+		moveCount = new LongAdder();
+		nodeCount = new LongAdder();
+		cacheHits = new LongAdder();
+		cacheMisses = new LongAdder();
+		plannedMoves = new LongAdder();
+		allocatedBytes = new LongAdder();
+		activeGames = new LongAdder();
+
+		// Only some JVMs can measure how much memory a thread has allocated
+		ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+		if (threadBean instanceof com.sun.management.ThreadMXBean
+				&& ((com.sun.management.ThreadMXBean) threadBean).isThreadAllocatedMemorySupported()) {
+			allocationBean = (com.sun.management.ThreadMXBean) threadBean;
+			allocationBean.setThreadAllocatedMemoryEnabled(true);
+		} else {
+			allocationBean = null;
+		}
+	}
+
+	/**
+	 * The getter for the metrics shared by every part of the engine
+	 * 
+	 * @return the engine's metrics
+	 */
+	public static EngineMetrics getInstance() {
+		return INSTANCE;
+	}
+
+	/**
+	 * A method that registers the engine's metrics with the platform MBean server
+	 * so they can be read through JMX
+	 * 
+	 * @throws IllegalStateException if the metrics could not be registered
+	 */
+	public static void registerMBean() {
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		try {
+			ObjectName name = new ObjectName(OBJECT_NAME);
+			if (!server.isRegistered(name)) {
+				server.registerMBean(INSTANCE, name);
+			}
+		} catch (JMException e) {
+			throw new IllegalStateException("Could not register the engine metrics with JMX", e);
+		}
+	}
+
+	/**
+	 * A method that measures how much memory the current thread has allocated so
+	 * far, so it can be compared to the amount allocated after a search
+	 * 
+	 * @return the number of bytes the current thread has allocated, or 0 if the JVM
+	 *         can not measure it
+	 */
+	public long currentThreadAllocatedBytes() {
+		if (allocationBean == null) {
+			return 0;
+		}
+		return allocationBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+
+	/**
+	 * A method that records a finished search for a move
+	 * 
+	 * @param latencyNanos          The time (in nanoseconds) the search took
+	 * @param nodes                 The number of positions the search visited
+	 * @param allocatedBytesAtStart The value of currentThreadAllocatedBytes() when
+	 *                              the search started
+	 */
+	public void recordMove(long latencyNanos, long nodes, long allocatedBytesAtStart) {
+		long latency = Math.max(1, latencyNanos);
+		latencyBuckets.incrementAndGet(63 - Long.numberOfLeadingZeros(latency));
+		maxLatencyNanos.accumulate(latency);
+		totalLatencyNanos.add(latency);
+		moveCount.increment();
+		nodeCount.add(nodes);
+		if (allocationBean != null) {
+			allocatedBytes.add(currentThreadAllocatedBytes() - allocatedBytesAtStart);
+		}
+	}
+
+	/**
+	 * A method that records the lookups a search made in the turn solvers' memos
+	 * (the engine's only cache)
+	 * 
+	 * @param hits   The number of lookups that found a position already walked
+	 * @param misses The number of lookups that had to walk a new position
+	 */
+	public void recordCacheLookups(long hits, long misses) {
+		cacheHits.add(hits);
+		cacheMisses.add(misses);
+	}
+
+	/**
+	 * A method that records a move played from the rest of a turn planned by an
+	 * earlier search (these are counted apart from cache lookups, so they do not
+	 * change the cache hit rate)
+	 */
+	public void recordPlannedMove() {
+		plannedMoves.increment();
+	}
+
+	/**
+	 * A method that records that a game has started being hosted
+	 */
+	public void gameStarted() {
+		activeGames.increment();
+	}
+
+	/**
+	 * A method that records that a game has stopped being hosted
+	 */
+	public void gameEnded() {
+		activeGames.decrement();
+	}
+
+	@Override
+	public long getMoveCount() {
+		return moveCount.sum();
+	}
+
+	@Override
+	public double getMoveLatencyP50Micros() {
+		return latencyPercentileNanos(0.50) / 1_000.0;
+	}
+
+	@Override
+	public double getMoveLatencyP99Micros() {
+		return latencyPercentileNanos(0.99) / 1_000.0;
+	}
+
+	@Override
+	public double getMoveLatencyMaxMicros() {
+		return maxLatencyNanos.get() / 1_000.0;
+	}
+
+	@Override
+	public long getNodeCount() {
+		return nodeCount.sum();
+	}
+
+	@Override
+	public double getNodesPerSecond() {
+		long nanos = totalLatencyNanos.sum();
+		return (nanos == 0) ? 0 : nodeCount.sum() * 1_000_000_000.0 / nanos;
+	}
+
+	@Override
+	public double getCacheHitRate() {
+		long hits = cacheHits.sum();
+		long lookups = hits + cacheMisses.sum();
+		return (lookups == 0) ? 0 : (double) hits / lookups;
+	}
+
+	@Override
+	public long getPlannedMoveCount() {
+		return plannedMoves.sum();
+	}
+
+	@Override
+	public long getActiveGameCount() {
+		return activeGames.sum();
+	}
+
+	@Override
+	public long getAllocatedBytes() {
+		return allocatedBytes.sum();
+	}
+
+	/**
+	 * A method that estimates a percentile of the move latencies from the
+	 * histogram. The estimate is the upper edge of the bucket the percentile falls
+	 * in, capped at the longest latency seen
+	 * 
+	 * @param percentile The percentile to estimate (between 0 and 1)
+	 * @return the estimated latency in nanoseconds, or 0 if no moves were recorded
+	 */
+	private long latencyPercentileNanos(double percentile) {
+
+		// Copy the buckets first, since they may change while we read them
+		long[] counts = new long[LATENCY_BUCKETS];
+		long total = 0;
+		for (int bucket = 0; bucket < LATENCY_BUCKETS; bucket++) {
+			counts[bucket] = latencyBuckets.get(bucket);
+			total += counts[bucket];
+		}
+		if (total == 0) {
+			return 0;
+		}
+
+		long rank = (long) Math.ceil(percentile * total);
+		long seen = 0;
+		for (int bucket = 0; bucket < LATENCY_BUCKETS; bucket++) {
+			seen += counts[bucket];
+			if (seen >= rank) {
+				long upperEdge = (bucket >= 62) ? Long.MAX_VALUE : (2L << bucket);
+				return Math.min(upperEdge, maxLatencyNanos.get());
+			}
+		}
+		return maxLatencyNanos.get();
+	}
+
+	/**
+	 * A method that writes the metrics in the Prometheus text exposition format
+	 * 
+	 * @return the metrics as Prometheus-style text
+	 */
+	public String toPrometheusText() {
+		StringBuilder text = new StringBuilder();
+
+		text.append("# HELP mancala_ai_move_latency_seconds Time taken by the AI to find a move\n");
+		text.append("# TYPE mancala_ai_move_latency_seconds summary\n");
+		appendSample(text, "mancala_ai_move_latency_seconds{quantile=\"0.5\"}", latencyPercentileNanos(0.50) / 1e9);
+		appendSample(text, "mancala_ai_move_latency_seconds{quantile=\"0.99\"}", latencyPercentileNanos(0.99) / 1e9);
+		appendSample(text, "mancala_ai_move_latency_seconds_sum", totalLatencyNanos.sum() / 1e9);
+		appendSample(text, "mancala_ai_move_latency_seconds_count", moveCount.sum());
+
+		text.append("# HELP mancala_ai_move_latency_max_seconds Longest time taken by the AI to find a move\n");
+		text.append("# TYPE mancala_ai_move_latency_max_seconds gauge\n");
+		appendSample(text, "mancala_ai_move_latency_max_seconds", maxLatencyNanos.get() / 1e9);
+
+		text.append("# HELP mancala_ai_nodes_total Positions searched by the AI\n");
+		text.append("# TYPE mancala_ai_nodes_total counter\n");
+		appendSample(text, "mancala_ai_nodes_total", nodeCount.sum());
+
+		text.append("# HELP mancala_ai_nodes_per_second Positions searched per second of search time\n");
+		text.append("# TYPE mancala_ai_nodes_per_second gauge\n");
+		appendSample(text, "mancala_ai_nodes_per_second", getNodesPerSecond());
+
+		text.append("# HELP mancala_cache_lookups_total Lookups in the turn solvers' memos\n");
+		text.append("# TYPE mancala_cache_lookups_total counter\n");
+		appendSample(text, "mancala_cache_lookups_total{result=\"hit\"}", cacheHits.sum());
+		appendSample(text, "mancala_cache_lookups_total{result=\"miss\"}", cacheMisses.sum());
+
+		text.append("# HELP mancala_ai_planned_moves_total Moves played from a planned turn without searching\n");
+		text.append("# TYPE mancala_ai_planned_moves_total counter\n");
+		appendSample(text, "mancala_ai_planned_moves_total", plannedMoves.sum());
+
+		text.append("# HELP mancala_active_games Games currently being hosted\n");
+		text.append("# TYPE mancala_active_games gauge\n");
+		appendSample(text, "mancala_active_games", activeGames.sum());
+
+		text.append("# HELP mancala_ai_allocated_bytes_total Memory allocated while searching\n");
+		text.append("# TYPE mancala_ai_allocated_bytes_total counter\n");
+		appendSample(text, "mancala_ai_allocated_bytes_total", allocatedBytes.sum());
+
+		text.append("# HELP jvm_gc_collections_total Garbage collections run by the JVM\n");
+		text.append("# TYPE jvm_gc_collections_total counter\n");
+		for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+			appendSample(text, "jvm_gc_collections_total{gc=\"" + gc.getName() + "\"}",
+					Math.max(0, gc.getCollectionCount()));
+		}
+		text.append("# HELP jvm_gc_collection_seconds_total Time spent by the JVM on garbage collection\n");
+		text.append("# TYPE jvm_gc_collection_seconds_total counter\n");
+		for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+			appendSample(text, "jvm_gc_collection_seconds_total{gc=\"" + gc.getName() + "\"}",
+					Math.max(0, gc.getCollectionTime()) / 1e3);
+		}
+
+		return text.toString();
+	}
+
+	/**
+	 * A method that adds a single sample line to Prometheus-style text
+	 * 
+	 * @param text  The text being built
+	 * @param name  The name (and labels) of the sample
+	 * @param value The value of the sample
+	 */
+	private static void appendSample(StringBuilder text, String name, double value) {
+		text.append(name).append(' ').append(value).append('\n');
+	}
+}
\ No newline at end of file
@@ -0,0 +1,84 @@
+package mancala;
+
+/**
+ * The management interface that exposes the AI engine's metrics through JMX
+ * 
+ * @author Michael Opheim
+ * @version 05/15/2023
+ */
+public interface EngineMetricsMBean {
+
+	/**
+	 * The getter for the number of moves the AI has searched for
+	 * 
+	 * @return the number of searches recorded
+	 */
+	long getMoveCount();
+
+	/**
+	 * The getter for the median time taken to find a move
+	 * 
+	 * @return the 50th percentile move latency in microseconds
+	 */
+	double getMoveLatencyP50Micros();
+
+	/**
+	 * The getter for the time taken to find a move in the slowest 1% of searches
+	 * 
+	 * @return the 99th percentile move latency in microseconds
+	 */
+	double getMoveLatencyP99Micros();
+
+	/**
+	 * The getter for the longest time taken to find a move
+	 * 
+	 * @return the maximum move latency in microseconds
+	 */
+	double getMoveLatencyMaxMicros();
+
+	/**
+	 * The getter for the number of positions the AI has visited
+	 * 
+	 * @return the total number of positions searched
+	 */
+	long getNodeCount();
+
+	/**
+	 * The getter for how quickly the AI visits positions while searching
+	 * 
+	 * @return the number of positions searched per second of search time
+	 */
+	double getNodesPerSecond();
+
+	/**
+	 * The getter for how often the engine's caches already held what was asked
+	 * for
+	 * 
+	 * @return the fraction of cache lookups that were hits, or 0 if there were
+	 *         none
+	 */
+	double getCacheHitRate();
+
+	/**
+	 * The getter for the number of moves played from the rest of a planned turn
+	 * (a turn made of extra turns) without searching again
+	 * 
+	 * @return the number of planned moves played
+	 */
+	long getPlannedMoveCount();
+
+	/**
+	 * The getter for the number of games currently being hosted
+	 * 
+	 * @return the number of active games
+	 */
+	long getActiveGameCount();
+
+	/**
+	 * The getter for the amount of memory the AI's searches have allocated
+	 * 
+	 * @return the number of bytes allocated while searching, or 0 if the JVM can
+	 *         not measure it
+	 */
+	long getAllocatedBytes();
+}
\ No newline at end of file
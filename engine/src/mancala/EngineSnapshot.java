@@ -0,0 +1,313 @@
+package mancala;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Saves everything a {@link MancalaSessionManager} is hosting to a file and
+ * brings it back after a restart. The file is memory-mapped and made of
+ * fixed-width binary records (a header, then one record per session holding the
+ * AI agent's settings and the game's board, stores and turn), so restoring a
+ * snapshot is just reading numbers at known offsets and nothing has to be parsed
+ * 
+ * The agent's killer move and history tables are not saved, because every
+ * search starts them from scratch. Every field of a snapshot is checked before
+ * any session is restored, and a file that is not a valid snapshot is rejected
+ * with an {@link InvalidSnapshotException}
+ * 
+ * @author Michael Opheim
+ * @version 05/15/2023
+ */
+public final class EngineSnapshot {
+
+	/** The number every snapshot file starts with ("MNCL") */
+	private static final int MAGIC = 0x4D4E434C;
+
+	/** The version of the file layout, changed whenever the layout changes */
+	private static final int VERSION = 1;
+
+	/**
+	 * The size (in bytes) of the header: the magic number, version, record size,
+	 * number of sessions and the last session id
+	 */
+	private static final int HEADER_BYTES = 4 + 4 + 4 + 4 + 8;
+
+	/**
+	 * The size (in bytes) of a session's record: the id, search depth, move
+	 * ordering, node budget, time budget, randomness, whether it is a human game,
+	 * the current player, both stores and the twelve holes
+	 */
+	private static final int RECORD_BYTES = 8 + 4 + 4 + 8 + 8 + 8 + 4 + 4 + 4 + 4 + 12 * 4;
+
+	/** The number of stones in a game (six in each of the twelve holes) */
+	private static final int TOTAL_STONES = 72;
+
+	/**
+	 * The exception thrown when a file is not a snapshot this version can restore
+	 * 
+	 * @author Michael Opheim
+	 * @version 05/15/2023
+	 */
+	public static class InvalidSnapshotException extends IOException {
+
+		/** The version of the exception's serialized form */
+		private static final long serialVersionUID = 1L;
+
+		/**
+		 * Constructor
+		 * 
+		 * @param file    The file that was being restored
+		 * @param problem What is wrong with the file
+		 */
+		public InvalidSnapshotException(Path file, String problem) {
+			super(file + " is not a valid mancala snapshot: " + problem);
+		}
+	}
+
+	/**
+	 * A session read back from a snapshot, checked but not yet hosted
+	 * 
+	 * @author Michael Opheim
+	 * @version 05/15/2023
+	 */
+	private static class SessionRecord {
+
+		/** The number that uniquely identifies the session */
+		private final long id;
+
+		/** The AI agent playing in the session */
+		private final ArtificialIntelligenceAgent aiAgent;
+
+		/** The session's game */
+		private final MancalaModel state;
+
+		/**
+		 * Constructor
+		 * 
+		 * @param id      The number that uniquely identifies the session
+		 * @param aiAgent The AI agent playing in the session
+		 * @param state   The session's game
+		 */
+		public SessionRecord(long id, ArtificialIntelligenceAgent aiAgent, MancalaModel state) {
+			this.id = id;
+			this.aiAgent = aiAgent;
+			this.state = state;
+		}
+	}
+
+	/**
+	 * Constructor (the class only has static methods, so it is never instantiated)
+	 */
+	private EngineSnapshot() {
+	}
+
+	/**
+	 * A method that saves every session a manager is hosting. The snapshot is
+	 * written to a temporary file that then replaces the old snapshot, so a crash
+	 * while saving never leaves a half-written snapshot behind
+	 * 
+	 * @param manager The manager whose sessions are saved
+	 * @param file    The file to save the snapshot to
+	 * @return the number of sessions saved
+	 * @throws IOException if the file can not be written
+	 */
+	public static int save(MancalaSessionManager manager, Path file) throws IOException {
+		List<GameSession> sessions = new ArrayList<>(manager.getSessions());
+		long lastSessionId = manager.getLastSessionId();
+		Path temporaryFile = file.resolveSibling(file.getFileName() + ".tmp");
+
+		try (FileChannel channel = FileChannel.open(temporaryFile, StandardOpenOption.CREATE,
+				StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+					HEADER_BYTES + (long) sessions.size() * RECORD_BYTES);
+			buffer.putInt(MAGIC);
+			buffer.putInt(VERSION);
+			buffer.putInt(RECORD_BYTES);
+			buffer.putInt(sessions.size());
+			buffer.putLong(lastSessionId);
+
+			for (GameSession session : sessions) {
+				ArtificialIntelligenceAgent aiAgent = session.getAIAgent();
+				MancalaModel model = session.getModelSnapshot();
+				buffer.putLong(session.getId());
+				buffer.putInt(aiAgent.getSearchDepth());
+				buffer.putInt(aiAgent.getMoveOrdering().ordinal());
+				buffer.putLong(aiAgent.getNodeBudget());
+				buffer.putLong(aiAgent.getTimeBudgetMillis());
+				buffer.putDouble(aiAgent.getRandomness());
+				buffer.putInt(model.getIsHumanGame() ? 1 : 0);
+				buffer.putInt(model.getCurrentPlayer());
+				buffer.putInt(model.getP1Store());
+				buffer.putInt(model.getP2Store());
+				for (int[] row : model.getBoard()) {
+					for (int stones : row) {
+						buffer.putInt(stones);
+					}
+				}
+			}
+			buffer.force();
+		}
+
+		Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		return sessions.size();
+	}
+
+	/**
+	 * A method that brings back every session in a snapshot and hosts it in a
+	 * manager. Sessions keep their ids, and new sessions are given ids after the
+	 * saved ones. The whole snapshot is checked first, so nothing is restored from
+	 * a file that is not valid, or from one holding a session whose id the manager
+	 * is already hosting (a live game is never replaced)
+	 * 
+	 * @param manager The manager to host the sessions in
+	 * @param file    The file the snapshot was saved to
+	 * @return the number of sessions restored, or 0 if there is no snapshot
+	 * @throws InvalidSnapshotException if the file is not a valid snapshot, or the
+	 *                                  manager already hosts one of its sessions'
+	 *                                  ids
+	 * @throws IOException              if the file can not be read
+	 */
+	public static int restore(MancalaSessionManager manager, Path file) throws IOException {
+		if (!Files.exists(file)) {
+			return 0;
+		}
+
+		List<SessionRecord> records = new ArrayList<>();
+		long lastSessionId;
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			if (channel.size() < HEADER_BYTES) {
+				throw new InvalidSnapshotException(file, "the header is missing");
+			}
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+			// Make sure the file is a snapshot this version can read
+			if (buffer.getInt() != MAGIC) {
+				throw new InvalidSnapshotException(file, "it does not start with the snapshot magic number");
+			}
+			int version = buffer.getInt();
+			if (version != VERSION || buffer.getInt() != RECORD_BYTES) {
+				throw new InvalidSnapshotException(file, "unsupported version " + version);
+			}
+			int sessionCount = buffer.getInt();
+			lastSessionId = buffer.getLong();
+			if (sessionCount < 0 || channel.size() != HEADER_BYTES + (long) sessionCount * RECORD_BYTES) {
+				throw new InvalidSnapshotException(file, "the file does not hold " + sessionCount + " sessions");
+			}
+			if (lastSessionId < 0) {
+				throw new InvalidSnapshotException(file, "the last session id is negative");
+			}
+
+			Set<Long> ids = new HashSet<>();
+			for (int record = 0; record < sessionCount; record++) {
+				SessionRecord session = readRecord(buffer, file);
+				if (!ids.add(session.id) || session.id > lastSessionId) {
+					throw new InvalidSnapshotException(file,
+							"session " + session.id + " has a duplicate or unissued id");
+				}
+				if (manager.getSession(session.id) != null) {
+					throw new InvalidSnapshotException(file,
+							"session " + session.id + " is already being hosted by the manager");
+				}
+				records.add(session);
+			}
+		}
+
+		// Only host the sessions once every record has been checked, failing if a
+		// session was created with one of their ids in the meantime
+		for (SessionRecord record : records) {
+			try {
+				manager.restoreSession(new GameSession(record.id, record.aiAgent, record.state));
+			} catch (IllegalStateException e) {
+				throw new InvalidSnapshotException(file,
+						"session " + record.id + " is already being hosted by the manager");
+			}
+		}
+		manager.restoreLastSessionId(lastSessionId);
+		return records.size();
+	}
+
+	/**
+	 * A method that reads and checks a session's record
+	 * 
+	 * @param buffer The snapshot, positioned at the start of the record
+	 * @param file   The file the snapshot was saved to
+	 * @return the session the record holds
+	 * @throws InvalidSnapshotException if any field of the record is not valid
+	 */
+	private static SessionRecord readRecord(MappedByteBuffer buffer, Path file) throws InvalidSnapshotException {
+		long id = buffer.getLong();
+		int searchDepth = buffer.getInt();
+		int moveOrdering = buffer.getInt();
+		long nodeBudget = buffer.getLong();
+		long timeBudgetMillis = buffer.getLong();
+		double randomness = buffer.getDouble();
+		int isHumanGame = buffer.getInt();
+		int currentPlayer = buffer.getInt();
+		int p1Store = buffer.getInt();
+		int p2Store = buffer.getInt();
+		int[][] board = new int[2][6];
+		for (int[] row : board) {
+			for (int hole = 0; hole < row.length; hole++) {
+				row[hole] = buffer.getInt();
+			}
+		}
+
+		// Check the AI agent's settings
+		String session = "session " + id + " ";
+		if (id < 1) {
+			throw new InvalidSnapshotException(file, session + "has an id below 1");
+		}
+		if (searchDepth < 1 || searchDepth > ArtificialIntelligenceAgent.MAX_SEARCH_DEPTH) {
+			throw new InvalidSnapshotException(file, session + "has search depth " + searchDepth);
+		}
+		ArtificialIntelligenceAgent.MoveOrdering[] moveOrderings = ArtificialIntelligenceAgent.MoveOrdering.values();
+		if (moveOrdering < 0 || moveOrdering >= moveOrderings.length) {
+			throw new InvalidSnapshotException(file, session + "has unknown move ordering " + moveOrdering);
+		}
+		if (nodeBudget < 1 || timeBudgetMillis < 1) {
+			throw new InvalidSnapshotException(file, session + "has a node or time budget below 1");
+		}
+		if (!(randomness >= 0 && randomness <= 1)) {
+			throw new InvalidSnapshotException(file, session + "has randomness " + randomness);
+		}
+
+		// Check the game: every stone must be somewhere, and a finished game has
+		// every stone in the stores
+		if ((isHumanGame != 0 && isHumanGame != 1) || (currentPlayer != 0 && currentPlayer != 1)) {
+			throw new InvalidSnapshotException(file, session + "has an unknown game mode or player to move");
+		}
+		int[] rowSums = new int[2];
+		for (int row = 0; row < board.length; row++) {
+			for (int stones : board[row]) {
+				if (stones < 0 || stones > TOTAL_STONES) {
+					throw new InvalidSnapshotException(file, session + "has a hole holding " + stones + " stones");
+				}
+				rowSums[row] += stones;
+			}
+		}
+		if (p1Store < 0 || p2Store < 0 || (long) p1Store + p2Store + rowSums[0] + rowSums[1] != TOTAL_STONES) {
+			throw new InvalidSnapshotException(file, session + "does not hold " + TOTAL_STONES + " stones");
+		}
+		if ((rowSums[0] == 0) != (rowSums[1] == 0)) {
+			throw new InvalidSnapshotException(file, session + "is over but has stones left on the board");
+		}
+
+		// Rebuild the session's agent and game
+		ArtificialIntelligenceAgent aiAgent = new ArtificialIntelligenceAgent(searchDepth, moveOrderings[moveOrdering],
+				nodeBudget, timeBudgetMillis, randomness, new Random());
+		MancalaModel state = new MancalaModel();
+		state.copy(board, currentPlayer, p1Store, p2Store);
+		state.setIsHumanGame(isHumanGame == 1);
+		return new SessionRecord(id, aiAgent, state);
+	}
+}
\ No newline at end of file
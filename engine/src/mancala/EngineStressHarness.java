@@ -0,0 +1,434 @@
+package mancala;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Checks that the AI agent plays exactly the same turns no matter how many
+ * threads are playing at once, and measures how well playing scales across
+ * threads. A fixed corpus of positions is built from a seed, the AI plays its
+ * whole turn from every position serially to get the reference results, and then
+ * the whole corpus is played again by 1, 2, 4 and so on up to N threads, in each
+ * of the ways agents can be shared (see {@link AgentSharing}), comparing the
+ * position every turn ends in and the number of positions searched for its last
+ * move with the reference
+ * 
+ * Agents have no time budget, and an agent's random number generator is seeded
+ * from the corpus seed and the position's number before every turn, so a turn's
+ * result should never depend on which thread played it or what its agent played
+ * before. Every position in the corpus has player 2 to move, since that is the
+ * player the AI plays in a {@link GameSession}
+ * 
+ * @author Michael Opheim
+ * @version 05/15/2023
+ */
+public class EngineStressHarness {
+
+	/** The most random moves played to reach a position in the corpus */
+	private static final int MAX_OPENING_MOVES = 40;
+
+	/** How many sessions each AI thread is given when agents are shared by sessions */
+	private static final int SESSIONS_PER_THREAD = 2;
+
+	/**
+	 * The ways the agents playing the corpus can be shared between positions and
+	 * threads
+	 * 
+	 * @author Michael Opheim
+	 * @version 05/15/2023
+	 */
+	public enum AgentSharing {
+
+		/** Every position is played by a new agent */
+		FRESH,
+
+		/**
+		 * Every thread has one agent and plays all of its positions with it, the way
+		 * the tournament plays its games
+		 */
+		PER_THREAD,
+
+		/**
+		 * Every position is hosted as a session by a {@link MancalaSessionManager},
+		 * with a few agents each carried through a series of sessions, so an agent is
+		 * played by whichever of the manager's threads picks up its next move, the
+		 * way agents are played in production
+		 */
+		SESSIONS
+	}
+
+	/** The positions searched */
+	private final List<MancalaModel> corpus;
+
+	/** The seed the corpus and the agents' random moves are derived from */
+	private final long seed;
+
+	/** The depth (in turns) the agents search to */
+	private final int searchDepth;
+
+	/** The move ordering policy the agents use */
+	private final ArtificialIntelligenceAgent.MoveOrdering moveOrdering;
+
+	/** The chance that the agents play a random move instead of searching */
+	private final double randomness;
+
+	/**
+	 * The results of playing the whole corpus once
+	 * 
+	 * @author Michael Opheim
+	 * @version 05/15/2023
+	 */
+	private static class CorpusRun {
+
+		/** The high half of the key of the position each turn ended in */
+		private final long[] keysHigh;
+
+		/** The low half of the key of the position each turn ended in */
+		private final long[] keysLow;
+
+		/** The number of positions searched for the last move of each turn */
+		private final long[] nodeCounts;
+
+		/** How long (in nanoseconds) it took to play the whole corpus */
+		private long elapsedNanos;
+
+		/**
+		 * Constructor
+		 * 
+		 * @param positions The number of positions in the corpus
+		 */
+		public CorpusRun(int positions) {
+			keysHigh = new long[positions];
+			keysLow = new long[positions];
+			nodeCounts = new long[positions];
+		}
+
+		/**
+		 * A method that stores the result of a turn
+		 * 
+		 * @param position The number of the position the turn started from
+		 * @param end      The position the turn ended in
+		 * @param aiAgent  The agent that played the turn
+		 */
+		public void record(int position, MancalaModel end, ArtificialIntelligenceAgent aiAgent) {
+			keysHigh[position] = ExtraTurnChainSolver.keyHigh(end);
+			keysLow[position] = ExtraTurnChainSolver.keyLow(end);
+			nodeCounts[position] = aiAgent.getNodeCount();
+		}
+	}
+
+	/**
+	 * Constructor
+	 * 
+	 * @param corpusSize   The number of positions to search
+	 * @param seed         The seed the corpus and the agents' random moves are
+	 *                     derived from
+	 * @param searchDepth  The depth (in turns) the agents search to
+	 * @param moveOrdering The move ordering policy the agents use
+	 * @param randomness   The chance that the agents play a random move
+	 */
+	public EngineStressHarness(int corpusSize, long seed, int searchDepth,
+			ArtificialIntelligenceAgent.MoveOrdering moveOrdering, double randomness) {
+		if (corpusSize < 1) {
+			throw new IllegalArgumentException("The corpus needs at least one position");
+		}
+		this.seed = seed;
+		this.searchDepth = searchDepth;
+		this.moveOrdering = moveOrdering;
+		this.randomness = randomness;
+
+		// Turn the positions with player 1 to move around, so the AI is always the
+		// player to move
+		corpus = buildCorpus(corpusSize, seed);
+		for (MancalaModel position : corpus) {
+			if (position.getCurrentPlayer() == 0) {
+				int[][] board = position.getBoard();
+				position.copy(new int[][] { board[1].clone(), board[0].clone() }, 1, position.getP2Store(),
+						position.getP1Store());
+			}
+		}
+	}
+
+	/**
+	 * A method that builds a corpus of positions by playing random moves from the
+	 * starting position. The same seed always builds the same corpus
+	 * 
+	 * @param size The number of positions to build
+	 * @param seed The seed for the random moves
+	 * @return the positions, none of which are over
+	 */
+	public static List<MancalaModel> buildCorpus(int size, long seed) {
+		Random random = new Random(seed);
+		List<MancalaModel> positions = new ArrayList<>(size);
+		while (positions.size() < size) {
+			MancalaModel position = new MancalaModel();
+			position.initializeBoard();
+			position.copy(position.getBoard(), random.nextInt(2), 0, 0);
+
+			// Play a random number of random moves, starting again if the game ends
+			int openingMoves = random.nextInt(MAX_OPENING_MOVES + 1);
+			for (int move = 0; move < openingMoves && !position.isWinningState(); move++) {
+				int legalMoves = position.getLegalMoves();
+				for (int choice = random.nextInt(Integer.bitCount(legalMoves)); choice > 0; choice--) {
+					legalMoves &= legalMoves - 1;
+				}
+				position.moveStones(Integer.numberOfTrailingZeros(legalMoves));
+			}
+			if (!position.isWinningState()) {
+				positions.add(position);
+			}
+		}
+		return positions;
+	}
+
+	/**
+	 * A method that plays every position in the corpus serially, then plays the
+	 * corpus on 1, 2, 4 and so on up to the given number of threads with every way
+	 * of sharing agents, and prints how each run compares with the serial reference
+	 * 
+	 * @param maxThreads The most threads to play with
+	 * @param out        Where to print the report
+	 * @return true if every run played exactly the same turns as the reference, and
+	 *         false otherwise
+	 * @throws InterruptedException if the thread is interrupted while waiting for
+	 *                              the turns
+	 */
+	public boolean run(int maxThreads, PrintStream out) throws InterruptedException {
+		out.printf("Playing %d positions to depth %d with %s ordering (seed %d)%n", corpus.size(), searchDepth,
+				moveOrdering, seed);
+
+		// Play the corpus once before timing anything, so the JIT compiler has
+		// already done its work when the reference and the first run are timed
+		playSerially();
+		CorpusRun reference = playSerially();
+		out.printf("Reference: %.1f ms, %.1f positions/s%n", reference.elapsedNanos / 1e6,
+				positionsPerSecond(reference));
+
+		boolean allMatched = true;
+		for (AgentSharing sharing : AgentSharing.values()) {
+			double singleThreadRate = 0;
+			for (int threads = 1;; threads = Math.min(threads * 2, maxThreads)) {
+				CorpusRun run = sharing == AgentSharing.SESSIONS ? playInSessions(threads)
+						: playConcurrently(threads, sharing);
+				int mismatches = countMismatches(reference, run);
+				allMatched &= mismatches == 0;
+
+				double rate = positionsPerSecond(run);
+				if (threads == 1) {
+					singleThreadRate = rate;
+				}
+				out.printf("%-10s %3d threads: %.1f ms, %.1f positions/s, speedup %.2f, %d mismatches%n", sharing,
+						threads, run.elapsedNanos / 1e6, rate, rate / singleThreadRate, mismatches);
+				if (threads >= maxThreads) {
+					break;
+				}
+			}
+		}
+		return allMatched;
+	}
+
+	/**
+	 * A method that plays every position in the corpus with a new agent, one after
+	 * another, on the calling thread
+	 * 
+	 * @return the results of the turns
+	 */
+	private CorpusRun playSerially() {
+		CorpusRun run = new CorpusRun(corpus.size());
+		long start = System.nanoTime();
+		for (int position = 0; position < corpus.size(); position++) {
+			Random random = new Random();
+			playPosition(position, createAgent(random), random, run);
+		}
+		run.elapsedNanos = System.nanoTime() - start;
+		return run;
+	}
+
+	/**
+	 * A method that plays every position in the corpus on a pool of threads, each
+	 * thread taking the next position that has not been played yet
+	 * 
+	 * @param threads The number of threads to play with
+	 * @param sharing Whether every position gets a new agent or every thread keeps
+	 *                one agent for all of its positions
+	 * @return the results of the turns
+	 * @throws InterruptedException if the thread is interrupted while waiting for
+	 *                              the turns
+	 */
+	private CorpusRun playConcurrently(int threads, AgentSharing sharing) throws InterruptedException {
+		CorpusRun run = new CorpusRun(corpus.size());
+		AtomicInteger nextPosition = new AtomicInteger();
+		List<Callable<Void>> workers = new ArrayList<>(threads);
+		for (int thread = 0; thread < threads; thread++) {
+			workers.add(() -> {
+				Random random = new Random();
+				ArtificialIntelligenceAgent threadAgent = createAgent(random);
+				for (int position = nextPosition.getAndIncrement(); position < corpus.size(); position = nextPosition
+						.getAndIncrement()) {
+					if (sharing == AgentSharing.FRESH) {
+						playPosition(position, createAgent(random), random, run);
+					} else {
+						playPosition(position, threadAgent, random, run);
+					}
+				}
+				return null;
+			});
+		}
+
+		ExecutorService executor = Executors.newFixedThreadPool(threads, (runnable) -> {
+			Thread thread = new Thread(runnable, "mancala-stress");
+			thread.setDaemon(true);
+			return thread;
+		});
+		try {
+			long start = System.nanoTime();
+			for (Future<Void> worker : executor.invokeAll(workers)) {
+				worker.get();
+			}
+			run.elapsedNanos = System.nanoTime() - start;
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("A turn failed", e.getCause());
+		} finally {
+			executor.shutdownNow();
+		}
+		return run;
+	}
+
+	/**
+	 * A method that hosts every position in the corpus as a session of a
+	 * {@link MancalaSessionManager} with the given number of AI threads. A few
+	 * agents are each carried through a series of sessions, one session after
+	 * another, so each agent is played by many of the manager's threads but never
+	 * by two at once, just as a session's agent is
+	 * 
+	 * @param threads The number of AI threads the manager plays with
+	 * @return the results of the turns
+	 * @throws InterruptedException if the thread is interrupted while waiting for
+	 *                              the turns
+	 */
+	private CorpusRun playInSessions(int threads) throws InterruptedException {
+		CorpusRun run = new CorpusRun(corpus.size());
+		MancalaSessionManager manager = new MancalaSessionManager(threads, 1, TimeUnit.HOURS);
+		int agents = Math.min(threads * SESSIONS_PER_THREAD, corpus.size());
+		List<CompletableFuture<Void>> agentRuns = new ArrayList<>(agents);
+		try {
+			long start = System.nanoTime();
+			for (int agent = 0; agent < agents; agent++) {
+				Random random = new Random();
+				ArtificialIntelligenceAgent aiAgent = createAgent(random);
+
+				// Host the agent's next position once it has finished its last one
+				CompletableFuture<Void> agentRun = CompletableFuture.completedFuture(null);
+				for (int position = agent; position < corpus.size(); position += agents) {
+					int hosted = position;
+					agentRun = agentRun.thenCompose((ignored) -> hostPosition(manager, hosted, aiAgent, random, run));
+				}
+				agentRuns.add(agentRun);
+			}
+			CompletableFuture.allOf(agentRuns.toArray(new CompletableFuture<?>[0])).get();
+			run.elapsedNanos = System.nanoTime() - start;
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("A turn failed", e.getCause());
+		} finally {
+			manager.shutdown();
+		}
+		return run;
+	}
+
+	/**
+	 * A method that hosts one position of the corpus as a session and lets its AI
+	 * play its turn
+	 * 
+	 * @param manager  The manager hosting the session
+	 * @param position The number of the position
+	 * @param aiAgent  The agent that plays in the session
+	 * @param random   The agent's random number generator
+	 * @param run      Where to store the result
+	 * @return a future that completes once the AI's turn is over and its result is
+	 *         stored
+	 */
+	private CompletableFuture<Void> hostPosition(MancalaSessionManager manager, int position,
+			ArtificialIntelligenceAgent aiAgent, Random random, CorpusRun run) {
+		random.setSeed(seed * 31 + position);
+		GameSession session = new GameSession(position + 1, aiAgent, corpus.get(position));
+		return manager.restoreSession(session).thenAccept((played) -> {
+			run.record(position, played.getModelSnapshot(), played.getAIAgent());
+			manager.removeSession(played.getId());
+		});
+	}
+
+	/**
+	 * A method that has an agent play its whole turn from one position of the
+	 * corpus, the way a {@link GameSession} plays it
+	 * 
+	 * @param position The number of the position
+	 * @param aiAgent  The agent that plays the turn
+	 * @param random   The agent's random number generator
+	 * @param run      Where to store the result
+	 */
+	private void playPosition(int position, ArtificialIntelligenceAgent aiAgent, Random random, CorpusRun run) {
+		random.setSeed(seed * 31 + position);
+		MancalaModel game = new MancalaModel();
+		MancalaModel start = corpus.get(position);
+		game.copy(start.getBoard(), start.getCurrentPlayer(), start.getP1Store(), start.getP2Store());
+		while (game.getCurrentPlayer() == 1 && !game.isWinningState()) {
+			game.moveStones(aiAgent.chooseMove(game));
+		}
+		if (game.isWinningState()) {
+			game.addRemainingStonesToPlayersStore();
+		}
+		run.record(position, game, aiAgent);
+	}
+
+	/**
+	 * A method that makes an agent to play the corpus with
+	 * 
+	 * @param random The random number generator the agent uses, which is seeded
+	 *               before every turn
+	 * @return the new agent
+	 */
+	private ArtificialIntelligenceAgent createAgent(Random random) {
+		return new ArtificialIntelligenceAgent(searchDepth, moveOrdering, Long.MAX_VALUE, Long.MAX_VALUE, randomness,
+				random);
+	}
+
+	/**
+	 * A method that counts the positions where a run's turn ended somewhere else
+	 * (or searched a different number of positions) than the reference's
+	 * 
+	 * @param reference The serial run
+	 * @param run       The run to compare with it
+	 * @return the number of positions that differ
+	 */
+	private static int countMismatches(CorpusRun reference, CorpusRun run) {
+		int mismatches = 0;
+		for (int position = 0; position < reference.nodeCounts.length; position++) {
+			if (run.keysHigh[position] != reference.keysHigh[position]
+					|| run.keysLow[position] != reference.keysLow[position]
+					|| run.nodeCounts[position] != reference.nodeCounts[position]) {
+				mismatches++;
+			}
+		}
+		return mismatches;
+	}
+
+	/**
+	 * A method that works out how quickly a run played the corpus
+	 * 
+	 * @param run The run
+	 * @return the number of positions played per second
+	 */
+	private double positionsPerSecond(CorpusRun run) {
+		return corpus.size() / (run.elapsedNanos / 1e9);
+	}
+}
\ No newline at end of file
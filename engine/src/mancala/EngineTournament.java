@@ -0,0 +1,636 @@
+package mancala;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Plays AI agent configurations against each other to decide which is
+ * stronger. Every configuration plays every other one (a round robin), and
+ * each match is played as pairs of games: both games of a pair start from the
+ * same random opening, with the configurations swapping sides for the second
+ * game, so neither gets a lucky opening or the better side. The games of a
+ * match are played a batch of pairs at a time on a pool of threads
+ * 
+ * A match stops as soon as a sequential probability ratio test (SPRT) decides
+ * that one configuration is stronger, instead of always playing a fixed number
+ * of games. The test is updated after every pair, in order, so a match is
+ * decided at the same pair no matter how many threads play it. The test weighs
+ * the hypothesis that the first configuration is weaker by a margin of Elo
+ * against the hypothesis that it is stronger by the same margin, using the
+ * normal approximation of the log-likelihood ratio over the pairs' scores
+ * (treating a pair as one sample keeps the two correlated games of a pair from
+ * counting as independent evidence)
+ * 
+ * Every game is derived from the tournament's seed, so a tournament can be
+ * repeated exactly as long as no entrant has a time budget: a search cut short
+ * by the clock depends on how fast the machine happens to be. Entrants made from
+ * a difficulty level therefore only keep the level's node budget, and the
+ * budgets every entrant plays with are printed before the first match
+ * 
+ * @author Michael Opheim
+ * @version 05/15/2023
+ */
+public class EngineTournament {
+
+	/** The Elo margin tested for when none is specified */
+	public static final double DEFAULT_ELO_MARGIN = 20;
+
+	/**
+	 * The chance of a wrong decision (in either direction) allowed when none is
+	 * specified
+	 */
+	public static final double DEFAULT_ERROR_RATE = 0.05;
+
+	/** The fewest random moves played to make an opening */
+	private static final int MIN_OPENING_MOVES = 1;
+
+	/** The most random moves played to make an opening */
+	private static final int MAX_OPENING_MOVES = 4;
+
+	/**
+	 * The spread of pair scores assumed before any pairs are played. The measured
+	 * variance is shrunk towards it as if PRIOR_PAIRS pairs with this variance had
+	 * been seen, so a match where one side wins every pair can still be decided
+	 */
+	private static final double PRIOR_VARIANCE = 0.1;
+
+	/** The number of pairs the prior variance counts as */
+	private static final double PRIOR_PAIRS = 2;
+
+	/**
+	 * The results a match can end with
+	 */
+	public enum Outcome {
+
+		/** The test decided that the first configuration is stronger */
+		FIRST_STRONGER,
+
+		/** The test decided that the second configuration is stronger */
+		SECOND_STRONGER,
+
+		/** The most pairs were played without the test reaching a decision */
+		INCONCLUSIVE
+	}
+
+	/**
+	 * A configuration of the AI agent taking part in the tournament
+	 * 
+	 * @author Michael Opheim
+	 * @version 05/15/2023
+	 */
+	public static class Entrant {
+
+		/** The name shown in the results */
+		private final String name;
+
+		/** The depth (in turns) the agent searches to */
+		private final int searchDepth;
+
+		/** The move ordering policy the agent uses */
+		private final ArtificialIntelligenceAgent.MoveOrdering moveOrdering;
+
+		/** The most positions the agent visits per move */
+		private final long nodeBudget;
+
+		/** The most time (in milliseconds) the agent spends per move */
+		private final long timeBudgetMillis;
+
+		/** The chance that the agent plays a random move */
+		private final double randomness;
+
+		/**
+		 * Constructor
+		 * 
+		 * @param name         The name shown in the results
+		 * @param searchDepth  The depth (in turns) the agent searches to
+		 * @param moveOrdering The move ordering policy the agent uses
+		 */
+		public Entrant(String name, int searchDepth, ArtificialIntelligenceAgent.MoveOrdering moveOrdering) {
+			this(name, searchDepth, moveOrdering, Long.MAX_VALUE, Long.MAX_VALUE, 0);
+		}
+
+		/**
+		 * Constructor (the level's time budget is left out, so the entrant's games can
+		 * be repeated on any machine)
+		 * 
+		 * @param difficulty The strength the agent plays at (also used as its name)
+		 */
+		public Entrant(ArtificialIntelligenceAgent.Difficulty difficulty) {
+			this(difficulty.toString(), difficulty.getSearchDepth(),
+					ArtificialIntelligenceAgent.MoveOrdering.KILLER_HISTORY, difficulty.getNodeBudget(), Long.MAX_VALUE,
+					difficulty.getRandomness());
+		}
+
+		/**
+		 * Constructor
+		 * 
+		 * @param name             The name shown in the results
+		 * @param searchDepth      The depth (in turns) the agent searches to
+		 * @param moveOrdering     The move ordering policy the agent uses
+		 * @param nodeBudget       The most positions the agent visits per move
+		 * @param timeBudgetMillis The most time (in milliseconds) the agent spends
+		 *                         per move
+		 * @param randomness       The chance that the agent plays a random move
+		 */
+		public Entrant(String name, int searchDepth, ArtificialIntelligenceAgent.MoveOrdering moveOrdering,
+				long nodeBudget, long timeBudgetMillis, double randomness) {
+			this.name = name;
+			this.searchDepth = searchDepth;
+			this.moveOrdering = moveOrdering;
+			this.nodeBudget = nodeBudget;
+			this.timeBudgetMillis = timeBudgetMillis;
+			this.randomness = randomness;
+		}
+
+		/**
+		 * The getter for the entrant's name
+		 * 
+		 * @return the name shown in the results
+		 */
+		public String getName() {
+			return name;
+		}
+
+		/**
+		 * A method that checks whether the entrant's games can be repeated exactly
+		 * 
+		 * @return true if the entrant has no time budget, and false otherwise
+		 */
+		public boolean isRepeatable() {
+			return timeBudgetMillis == Long.MAX_VALUE;
+		}
+
+		/**
+		 * A method that describes how the entrant's agent plays
+		 * 
+		 * @return the entrant's name, search depth, budgets and randomness
+		 */
+		@Override
+		public String toString() {
+			String nodes = (nodeBudget == Long.MAX_VALUE) ? "no node budget" : nodeBudget + " nodes";
+			String time = isRepeatable() ? "no time budget" : timeBudgetMillis + " ms";
+			return String.format("%s: depth %d, %s ordering, %s, %s, randomness %.2f", name, searchDepth,
+					moveOrdering, nodes, time, randomness);
+		}
+
+		/**
+		 * A method that creates an agent with the entrant's configuration (agents are
+		 * not shared between games, since an agent can only search one game at a
+		 * time)
+		 * 
+		 * @param seed The seed for the agent's random moves
+		 * @return a new agent
+		 */
+		ArtificialIntelligenceAgent createAgent(long seed) {
+			return new ArtificialIntelligenceAgent(searchDepth, moveOrdering, nodeBudget, timeBudgetMillis, randomness,
+					new Random(seed));
+		}
+	}
+
+	/**
+	 * The result of a match between two entrants
+	 * 
+	 * @author Michael Opheim
+	 * @version 05/15/2023
+	 */
+	public static class MatchResult {
+
+		/** The entrant whose results are counted */
+		private final Entrant first;
+
+		/** The entrant the first entrant played against */
+		private final Entrant second;
+
+		/** The number of games the first entrant won */
+		private int wins;
+
+		/** The number of games that were tied */
+		private int draws;
+
+		/** The number of games the first entrant lost */
+		private int losses;
+
+		/** The number of pairs of games played */
+		private int pairs;
+
+		/** The sum of the first entrant's pair scores (each between 0 and 1) */
+		private double pairScoreSum;
+
+		/** The sum of the squares of the first entrant's pair scores */
+		private double pairScoreSquareSum;
+
+		/** The log-likelihood ratio of the test after the last pair */
+		private double logLikelihoodRatio;
+
+		/** How the match ended */
+		private Outcome outcome;
+
+		/**
+		 * Constructor
+		 * 
+		 * @param first  The entrant whose results are counted
+		 * @param second The entrant the first entrant plays against
+		 */
+		private MatchResult(Entrant first, Entrant second) {
+			this.first = first;
+			this.second = second;
+			outcome = Outcome.INCONCLUSIVE;
+		}
+
+		/**
+		 * A method that counts a pair of games
+		 * 
+		 * @param firstGameScore  The first entrant's score in the first game (1 for a
+		 *                        win, 0.5 for a tie and 0 for a loss)
+		 * @param secondGameScore The first entrant's score in the second game
+		 */
+		private void addPair(double firstGameScore, double secondGameScore) {
+			for (double score : new double[] { firstGameScore, secondGameScore }) {
+				if (score == 1) {
+					wins++;
+				} else if (score == 0) {
+					losses++;
+				} else {
+					draws++;
+				}
+			}
+			double pairScore = (firstGameScore + secondGameScore) / 2;
+			pairs++;
+			pairScoreSum += pairScore;
+			pairScoreSquareSum += pairScore * pairScore;
+		}
+
+		/**
+		 * The getter for the entrant whose results are counted
+		 * 
+		 * @return the first entrant
+		 */
+		public Entrant getFirst() {
+			return first;
+		}
+
+		/**
+		 * The getter for the entrant the first entrant played against
+		 * 
+		 * @return the second entrant
+		 */
+		public Entrant getSecond() {
+			return second;
+		}
+
+		/**
+		 * The getter for the number of games the first entrant won
+		 * 
+		 * @return the number of wins
+		 */
+		public int getWins() {
+			return wins;
+		}
+
+		/**
+		 * The getter for the number of games that were tied
+		 * 
+		 * @return the number of draws
+		 */
+		public int getDraws() {
+			return draws;
+		}
+
+		/**
+		 * The getter for the number of games the first entrant lost
+		 * 
+		 * @return the number of losses
+		 */
+		public int getLosses() {
+			return losses;
+		}
+
+		/**
+		 * The getter for the number of pairs of games played
+		 * 
+		 * @return the number of pairs
+		 */
+		public int getPairs() {
+			return pairs;
+		}
+
+		/**
+		 * The getter for the first entrant's share of the points
+		 * 
+		 * @return the first entrant's score (between 0 and 1), or 0.5 if no games
+		 *         were played
+		 */
+		public double getScore() {
+			return (pairs == 0) ? 0.5 : pairScoreSum / pairs;
+		}
+
+		/**
+		 * The getter for how much stronger the first entrant played
+		 * 
+		 * @return the Elo difference implied by the first entrant's score
+		 */
+		public double getEloDifference() {
+			double score = Math.min(Math.max(getScore(), 0.001), 0.999);
+			return -400 * Math.log10(1 / score - 1);
+		}
+
+		/**
+		 * The getter for the log-likelihood ratio of the test
+		 * 
+		 * @return the evidence that the first entrant is stronger (positive) or weaker
+		 *         (negative)
+		 */
+		public double getLogLikelihoodRatio() {
+			return logLikelihoodRatio;
+		}
+
+		/**
+		 * The getter for how the match ended
+		 * 
+		 * @return the decision of the test
+		 */
+		public Outcome getOutcome() {
+			return outcome;
+		}
+	}
+
+	/** The configurations taking part */
+	private final List<Entrant> entrants;
+
+	/** The seed the openings and the agents' random moves are derived from */
+	private final long seed;
+
+	/** The number of threads games are played on */
+	private final int threads;
+
+	/** The most pairs of games played in a match */
+	private final int maxPairs;
+
+	/** The Elo difference the test tries to detect in either direction */
+	private final double eloMargin;
+
+	/** The log-likelihood ratio below which the second entrant is stronger */
+	private final double lowerBound;
+
+	/** The log-likelihood ratio above which the first entrant is stronger */
+	private final double upperBound;
+
+	/**
+	 * Constructor
+	 * 
+	 * @param entrants The configurations taking part
+	 * @param seed     The seed the openings and random moves are derived from
+	 * @param threads  The number of threads to play games on
+	 * @param maxPairs The most pairs of games to play in a match
+	 */
+	public EngineTournament(List<Entrant> entrants, long seed, int threads, int maxPairs) {
+		this(entrants, seed, threads, maxPairs, DEFAULT_ELO_MARGIN, DEFAULT_ERROR_RATE);
+	}
+
+	/**
+	 * Constructor
+	 * 
+	 * @param entrants  The configurations taking part
+	 * @param seed      The seed the openings and random moves are derived from
+	 * @param threads   The number of threads to play games on
+	 * @param maxPairs  The most pairs of games to play in a match
+	 * @param eloMargin The Elo difference the test tries to detect in either
+	 *                  direction
+	 * @param errorRate The chance of a wrong decision allowed in each direction
+	 */
+	public EngineTournament(List<Entrant> entrants, long seed, int threads, int maxPairs, double eloMargin,
+			double errorRate) {
+		if (entrants.size() < 2) {
+			throw new IllegalArgumentException("A tournament needs at least two entrants");
+		}
+		if (threads < 1 || maxPairs < 1) {
+			throw new IllegalArgumentException("At least one thread and one pair of games are needed");
+		}
+		if (eloMargin <= 0 || errorRate <= 0 || errorRate >= 0.5) {
+			throw new IllegalArgumentException("The Elo margin must be positive and the error rate below 0.5");
+		}
+		this.entrants = new ArrayList<>(entrants);
+		this.seed = seed;
+		this.threads = threads;
+		this.maxPairs = maxPairs;
+		this.eloMargin = eloMargin;
+		lowerBound = Math.log(errorRate / (1 - errorRate));
+		upperBound = Math.log((1 - errorRate) / errorRate);
+	}
+
+	/**
+	 * A method that plays every match of the round robin and prints each match's
+	 * result and the final standings
+	 * 
+	 * @param out Where to print the results
+	 * @return the result of every match
+	 * @throws InterruptedException if the thread is interrupted while waiting for
+	 *                              games
+	 */
+	public List<MatchResult> run(PrintStream out) throws InterruptedException {
+		List<MatchResult> results = new ArrayList<>();
+		double[] points = new double[entrants.size()];
+		int[] games = new int[entrants.size()];
+
+		// Log what every entrant plays with, so the results can be reproduced
+		out.printf("Tournament with seed %d, at most %d pairs per match:%n", seed, maxPairs);
+		boolean repeatable = true;
+		for (Entrant entrant : entrants) {
+			out.println("  " + entrant);
+			repeatable &= entrant.isRepeatable();
+		}
+		if (!repeatable) {
+			out.println("Some entrants have a time budget, so these results may not repeat");
+		}
+
+		ExecutorService executor = Executors.newFixedThreadPool(threads, (runnable) -> {
+			Thread thread = new Thread(runnable, "mancala-tournament");
+			thread.setDaemon(true);
+			return thread;
+		});
+		try {
+			for (int first = 0; first < entrants.size(); first++) {
+				for (int second = first + 1; second < entrants.size(); second++) {
+					MatchResult result = playMatch(executor, results.size(), entrants.get(first),
+							entrants.get(second));
+					results.add(result);
+					out.printf("%s vs %s: +%d =%d -%d in %d pairs, Elo %+.0f, LLR %.2f, %s%n",
+							result.getFirst().getName(), result.getSecond().getName(), result.getWins(),
+							result.getDraws(), result.getLosses(), result.getPairs(), result.getEloDifference(),
+							result.getLogLikelihoodRatio(), result.getOutcome());
+
+					// Tally the points for the standings
+					int played = result.getWins() + result.getDraws() + result.getLosses();
+					double firstPoints = result.getWins() + result.getDraws() / 2.0;
+					points[first] += firstPoints;
+					points[second] += played - firstPoints;
+					games[first] += played;
+					games[second] += played;
+				}
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+
+		// Print the entrants from the most points per game to the fewest
+		List<Integer> standings = new ArrayList<>();
+		for (int entrant = 0; entrant < entrants.size(); entrant++) {
+			standings.add(entrant);
+		}
+		Collections.sort(standings,
+				(a, b) -> Double.compare(points[b] / Math.max(1, games[b]), points[a] / Math.max(1, games[a])));
+		out.println("Standings:");
+		for (int entrant : standings) {
+			out.printf("  %-12s %.1f / %d%n", entrants.get(entrant).getName(), points[entrant], games[entrant]);
+		}
+		return results;
+	}
+
+	/**
+	 * A method that plays pairs of games between two entrants, a batch of pairs at
+	 * a time, until the test reaches a decision or the most pairs have been played
+	 * 
+	 * @param executor The threads to play the games on
+	 * @param match    The number of the match within the tournament
+	 * @param first    The entrant whose results are counted
+	 * @param second   The entrant it plays against
+	 * @return the result of the match
+	 * @throws InterruptedException if the thread is interrupted while waiting for
+	 *                              games
+	 */
+	private MatchResult playMatch(ExecutorService executor, int match, Entrant first, Entrant second)
+			throws InterruptedException {
+		MatchResult result = new MatchResult(first, second);
+		while (result.getPairs() < maxPairs && result.getOutcome() == Outcome.INCONCLUSIVE) {
+
+			// Play as many pairs at once as there are threads
+			int batchSize = Math.min(threads, maxPairs - result.getPairs());
+			List<Callable<double[]>> batch = new ArrayList<>(batchSize);
+			for (int pair = result.getPairs(); pair < result.getPairs() + batchSize; pair++) {
+				long pairSeed = seed + 1_000_003L * match + pair;
+				batch.add(() -> playPair(first, second, pairSeed));
+			}
+
+			// Count the pairs in order and ignore the rest of the batch once the test is
+			// decided, so the match stops at the same pair however many threads there are
+			try {
+				for (Future<double[]> pair : executor.invokeAll(batch)) {
+					double[] scores = pair.get();
+					result.addPair(scores[0], scores[1]);
+					updateTest(result);
+					if (result.getOutcome() != Outcome.INCONCLUSIVE) {
+						break;
+					}
+				}
+			} catch (ExecutionException e) {
+				throw new IllegalStateException("A game failed", e.getCause());
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * A method that plays a pair of games from the same random opening, with the
+	 * entrants swapping sides for the second game
+	 * 
+	 * @param first    The entrant whose scores are returned
+	 * @param second   The entrant it plays against
+	 * @param pairSeed The seed for the opening and the agents' random moves
+	 * @return the first entrant's score in each game (1 for a win, 0.5 for a tie
+	 *         and 0 for a loss)
+	 */
+	private static double[] playPair(Entrant first, Entrant second, long pairSeed) {
+		MancalaModel opening = createOpening(new Random(pairSeed));
+		double[] scores = new double[2];
+		for (int game = 0; game < 2; game++) {
+			ArtificialIntelligenceAgent firstAgent = first.createAgent(pairSeed * 2 + game);
+			ArtificialIntelligenceAgent secondAgent = second.createAgent(~(pairSeed * 2 + game));
+
+			// The first entrant plays player 1 in the first game and player 2 in the
+			// second
+			int firstPlayer = game;
+			MancalaModel model = new MancalaModel();
+			model.copy(opening.getBoard(), opening.getCurrentPlayer(), opening.getP1Store(), opening.getP2Store());
+			while (!model.isWinningState()) {
+				ArtificialIntelligenceAgent aiAgent = (model.getCurrentPlayer() == firstPlayer) ? firstAgent
+						: secondAgent;
+				model.moveStones(aiAgent.chooseMove(model));
+			}
+			model.addRemainingStonesToPlayersStore();
+
+			int firstStore = (firstPlayer == 0) ? model.getP1Store() : model.getP2Store();
+			int secondStore = (firstPlayer == 0) ? model.getP2Store() : model.getP1Store();
+			scores[game] = (firstStore > secondStore) ? 1 : (firstStore < secondStore) ? 0 : 0.5;
+		}
+		return scores;
+	}
+
+	/**
+	 * A method that makes an opening by playing a few random moves from the
+	 * starting position
+	 * 
+	 * @param random The source of the random moves
+	 * @return a position that is not over
+	 */
+	private static MancalaModel createOpening(Random random) {
+		while (true) {
+			MancalaModel opening = new MancalaModel();
+			opening.initializeBoard();
+			int moves = MIN_OPENING_MOVES + random.nextInt(MAX_OPENING_MOVES - MIN_OPENING_MOVES + 1);
+			for (int move = 0; move < moves && !opening.isWinningState(); move++) {
+				int legalMoves = opening.getLegalMoves();
+				for (int choice = random.nextInt(Integer.bitCount(legalMoves)); choice > 0; choice--) {
+					legalMoves &= legalMoves - 1;
+				}
+				opening.moveStones(Integer.numberOfTrailingZeros(legalMoves));
+			}
+			if (!opening.isWinningState()) {
+				return opening;
+			}
+		}
+	}
+
+	/**
+	 * A method that updates a match's log-likelihood ratio and decides the match
+	 * if the ratio has crossed either bound
+	 * 
+	 * @param result The match so far
+	 */
+	private void updateTest(MatchResult result) {
+		int pairs = result.getPairs();
+		double mean = result.pairScoreSum / pairs;
+		double variance = Math.max(0, result.pairScoreSquareSum / pairs - mean * mean);
+		variance = (pairs * variance + PRIOR_PAIRS * PRIOR_VARIANCE) / (pairs + PRIOR_PAIRS);
+
+		// The expected scores if the first entrant is weaker or stronger by the margin
+		double weakerScore = expectedScore(-eloMargin);
+		double strongerScore = expectedScore(eloMargin);
+		result.logLikelihoodRatio = pairs * (strongerScore - weakerScore) * (2 * mean - weakerScore - strongerScore)
+				/ (2 * variance);
+
+		if (result.logLikelihoodRatio >= upperBound) {
+			result.outcome = Outcome.FIRST_STRONGER;
+		} else if (result.logLikelihoodRatio <= lowerBound) {
+			result.outcome = Outcome.SECOND_STRONGER;
+		}
+	}
+
+	/**
+	 * A method that works out the score a player is expected to get against an
+	 * opponent
+	 * 
+	 * @param eloDifference How much stronger (in Elo) the player is
+	 * @return the expected score (between 0 and 1)
+	 */
+	private static double expectedScore(double eloDifference) {
+		return 1 / (1 + Math.pow(10, -eloDifference / 400));
+	}
+}
\ No newline at end of file
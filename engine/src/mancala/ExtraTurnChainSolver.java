@@ -0,0 +1,435 @@
+package mancala;
+
+import java.util.Arrays;
+
+/**
+ * Works out every way the player to move can finish their turn. A move whose
+ * last stone lands in the player's store earns another move, so a turn is a
+ * chain of moves that only ends when the last stone lands somewhere else (or
+ * the game ends). The solver walks every chain once, remembering each position
+ * it has reached part way through a turn so that chains which reach the same
+ * position by a different route are not walked again, and keeps one chain for
+ * each distinct position the turn can end in
+ * 
+ * Positions are remembered by a 120-bit key held in two longs: a byte for each
+ * hole and store and one for the player to move. A hole or store never holds
+ * more stones than there are in the game, so every count fits in a byte as long
+ * as the game has at most MAX_STONES stones (a normal game has 72); the solver
+ * refuses games with more
+ * 
+ * @author Michael Opheim
+ * @version 05/15/2023
+ */
+public class ExtraTurnChainSolver {
+
+	/** The number of holes on each side of the board */
+	private static final int HOLES_PER_ROW = 6;
+
+	/** The most stones a game can hold for every count to fit in a byte of a key */
+	static final int MAX_STONES = 0xFF;
+
+	/**
+	 * The most moves a turn can be made of (every move that earns another move
+	 * puts a stone in the store, and a game holds at most MAX_STONES stones)
+	 */
+	static final int MAX_CHAIN_LENGTH = MAX_STONES + 1;
+
+	/** The number of positions the memo can hold before it first grows */
+	private static final int INITIAL_MEMO_CAPACITY = 64;
+
+	/**
+	 * The game part way through the turn after each move of the chain being
+	 * walked (created as longer chains are found)
+	 */
+	private MancalaModel[] chainModels;
+
+	/** The holes played so far in the chain being walked */
+	private final int[] chain;
+
+	/** The position each distinct way of finishing the turn ends in */
+	private MancalaModel[] results;
+
+	/** Where each result's chain starts within resultChains */
+	private int[] resultChainStarts;
+
+	/** The number of moves in each result's chain */
+	private int[] resultChainLengths;
+
+	/** The holes played by every result's chain, one chain after another */
+	private int[] resultChains;
+
+	/** The number of results found by the most recent solve */
+	private int resultCount;
+
+	/** The number of holes stored in resultChains by the most recent solve */
+	private int resultChainsLength;
+
+	/** The high half of the key of each position in the memo */
+	private long[] memoHigh;
+
+	/** The low half of the key of each position in the memo */
+	private long[] memoLow;
+
+	/**
+	 * The solve each memo entry was stored by (entries from earlier solves count
+	 * as empty, so the memo never has to be cleared)
+	 */
+	private int[] memoStamps;
+
+	/** The number that marks the memo entries stored by the current solve */
+	private int stamp;
+
+	/** The number of positions stored in the memo by the current solve */
+	private int memoSize;
+
+	/** The number of moves made by the most recent solve */
+	private long moveCount;
+
+	/**
+	 * The number of times the most recent solve reached a position it had already
+	 * reached
+	 */
+	private long memoHits;
+
+	/**
+	 * The number of distinct positions the most recent solve reached and
+	 * remembered
+	 */
+	private long memoMisses;
+
+	/**
+	 * Constructor
+	 */
+	public ExtraTurnChainSolver() {
+		chainModels = new MancalaModel[0];
+		chain = new int[MAX_CHAIN_LENGTH];
+		results = new MancalaModel[0];
+		resultChainStarts = new int[HOLES_PER_ROW];
+		resultChainLengths = new int[HOLES_PER_ROW];
+		resultChains = new int[HOLES_PER_ROW];
+		memoHigh = new long[INITIAL_MEMO_CAPACITY];
+		memoLow = new long[INITIAL_MEMO_CAPACITY];
+		memoStamps = new int[INITIAL_MEMO_CAPACITY];
+	}
+
+	/**
+	 * A method that finds every distinct position the player to move can finish
+	 * their turn in. The results can be read until the next solve
+	 * 
+	 * @param position The game to solve (it is not changed)
+	 * @return the number of distinct positions the turn can end in (0 if the game
+	 *         is already over)
+	 * @throws IllegalArgumentException if the game has more than MAX_STONES stones
+	 */
+	public int solve(MancalaModel position) {
+		if (countStones(position) > MAX_STONES) {
+			throw new IllegalArgumentException("A game can hold at most " + MAX_STONES + " stones");
+		}
+		resultCount = 0;
+		resultChainsLength = 0;
+		moveCount = 0;
+		memoHits = 0;
+		memoMisses = 0;
+		memoSize = 0;
+		if (++stamp == 0) {
+			Arrays.fill(memoStamps, 0);
+			stamp = 1;
+		}
+
+		if (!position.isWinningState()) {
+			walkChains(position, 0);
+		}
+		return resultCount;
+	}
+
+	/**
+	 * A method that tries every move from a position part way through the turn,
+	 * following each move that earns another move and recording each one that
+	 * finishes the turn
+	 * 
+	 * @param position The game before the move
+	 * @param length   The number of moves already made this turn
+	 */
+	private void walkChains(MancalaModel position, int length) {
+		int player = position.getCurrentPlayer();
+		MancalaModel child = chainModel(length);
+
+		for (int legalMoves = position.getLegalMoves(); legalMoves != 0; legalMoves &= legalMoves - 1) {
+			int hole = Integer.numberOfTrailingZeros(legalMoves);
+			child.copy(position.getBoard(), player, position.getP1Store(), position.getP2Store());
+			child.moveStones(hole);
+			chain[length] = hole;
+			moveCount++;
+
+			// Skip any position this turn has already reached by another route, since
+			// everything that can follow it has already been found
+			if (!remember(child)) {
+				memoHits++;
+				continue;
+			}
+			memoMisses++;
+
+			if (child.getCurrentPlayer() == player && !child.isWinningState()) {
+				walkChains(child, length + 1);
+			} else {
+				addResult(child, length + 1);
+			}
+		}
+	}
+
+	/**
+	 * A method that records a distinct position the turn can end in, along with
+	 * the chain of moves that reaches it
+	 * 
+	 * @param position The game at the end of the turn
+	 * @param length   The number of moves in the chain
+	 */
+	private void addResult(MancalaModel position, int length) {
+		if (resultCount == results.length) {
+			int capacity = Math.max(HOLES_PER_ROW, results.length * 2);
+			results = Arrays.copyOf(results, capacity);
+			resultChainStarts = Arrays.copyOf(resultChainStarts, capacity);
+			resultChainLengths = Arrays.copyOf(resultChainLengths, capacity);
+		}
+		if (results[resultCount] == null) {
+			results[resultCount] = new MancalaModel();
+		}
+		if (resultChainsLength + length > resultChains.length) {
+			resultChains = Arrays.copyOf(resultChains, Math.max(resultChains.length * 2, resultChainsLength + length));
+		}
+
+		results[resultCount].copy(position.getBoard(), position.getCurrentPlayer(), position.getP1Store(),
+				position.getP2Store());
+		resultChainStarts[resultCount] = resultChainsLength;
+		resultChainLengths[resultCount] = length;
+		System.arraycopy(chain, 0, resultChains, resultChainsLength, length);
+		resultChainsLength += length;
+		resultCount++;
+	}
+
+	/**
+	 * The getter for the model used for the position after a move of the chain
+	 * 
+	 * @param length The number of moves made before the move
+	 * @return the model to make the move in
+	 */
+	private MancalaModel chainModel(int length) {
+		if (length == chainModels.length) {
+			chainModels = Arrays.copyOf(chainModels, length + 1);
+			chainModels[length] = new MancalaModel();
+		}
+		return chainModels[length];
+	}
+
+	/**
+	 * A method that adds a position to the memo
+	 * 
+	 * @param position The game to remember
+	 * @return true if the position was added, and false if it was already in the
+	 *         memo
+	 */
+	private boolean remember(MancalaModel position) {
+		long high = keyHigh(position);
+		long low = keyLow(position);
+		int mask = memoStamps.length - 1;
+		int index = hash(high, low) & mask;
+
+		// Probe the slots after the key's slot until the key or an empty slot is found
+		while (memoStamps[index] == stamp) {
+			if (memoHigh[index] == high && memoLow[index] == low) {
+				return false;
+			}
+			index = (index + 1) & mask;
+		}
+		memoHigh[index] = high;
+		memoLow[index] = low;
+		memoStamps[index] = stamp;
+
+		// Keep the memo at most half full so probes stay short
+		if (++memoSize * 2 > memoStamps.length) {
+			growMemo();
+		}
+		return true;
+	}
+
+	/**
+	 * A method that doubles the size of the memo, keeping the positions stored by
+	 * the current solve
+	 */
+	private void growMemo() {
+		long[] oldHigh = memoHigh;
+		long[] oldLow = memoLow;
+		int[] oldStamps = memoStamps;
+		memoHigh = new long[oldHigh.length * 2];
+		memoLow = new long[oldLow.length * 2];
+		memoStamps = new int[oldStamps.length * 2];
+
+		int mask = memoStamps.length - 1;
+		for (int i = 0; i < oldStamps.length; i++) {
+			if (oldStamps[i] != stamp) {
+				continue;
+			}
+			int index = hash(oldHigh[i], oldLow[i]) & mask;
+			while (memoStamps[index] == stamp) {
+				index = (index + 1) & mask;
+			}
+			memoHigh[index] = oldHigh[i];
+			memoLow[index] = oldLow[i];
+			memoStamps[index] = stamp;
+		}
+	}
+
+	/**
+	 * A method that mixes the halves of a position's key into a memo slot
+	 * 
+	 * @param high The high half of the key
+	 * @param low  The low half of the key
+	 * @return the hash of the key
+	 */
+	private static int hash(long high, long low) {
+		long mixed = (high * 0x9E3779B97F4A7C15L) ^ (low * 0xC2B2AE3D27D4EB4FL);
+		return (int) (mixed ^ (mixed >>> 32));
+	}
+
+	/**
+	 * A method that packs the first eight holes of a position (player 1's six holes
+	 * and player 2's first two) into the high half of its key
+	 * 
+	 * @param position The game to pack
+	 * @return the high half of the position's key
+	 */
+	public static long keyHigh(MancalaModel position) {
+		int[][] board = position.getBoard();
+		long key = 0;
+		for (int hole = 0; hole < HOLES_PER_ROW; hole++) {
+			key = (key << 8) | (board[0][hole] & 0xFF);
+		}
+		return (key << 16) | ((board[1][0] & 0xFF) << 8) | (board[1][1] & 0xFF);
+	}
+
+	/**
+	 * A method that packs the last four holes, the stores and the player to move
+	 * of a position into the low half of its key
+	 * 
+	 * @param position The game to pack
+	 * @return the low half of the position's key
+	 */
+	public static long keyLow(MancalaModel position) {
+		int[][] board = position.getBoard();
+		long key = 0;
+		for (int hole = 2; hole < HOLES_PER_ROW; hole++) {
+			key = (key << 8) | (board[1][hole] & 0xFF);
+		}
+		key = (key << 8) | (position.getP1Store() & 0xFF);
+		key = (key << 8) | (position.getP2Store() & 0xFF);
+		return (key << 8) | position.getCurrentPlayer();
+	}
+
+	/**
+	 * A method that counts every stone in a game, on the board and in the stores
+	 * 
+	 * @param position The game to count
+	 * @return the number of stones
+	 */
+	static long countStones(MancalaModel position) {
+		return (long) position.getRowSum(0) + position.getRowSum(1) + position.getP1Store() + position.getP2Store();
+	}
+
+	/**
+	 * The getter for the number of distinct positions the turn can end in
+	 * 
+	 * @return the number of results found by the most recent solve
+	 */
+	public int getResultCount() {
+		return resultCount;
+	}
+
+	/**
+	 * The getter for a position the turn can end in
+	 * 
+	 * @param result The number of the result (0 to getResultCount() - 1)
+	 * @return the game at the end of the turn (owned by the solver, so it must not
+	 *         be changed)
+	 */
+	public MancalaModel getResult(int result) {
+		checkResult(result);
+		return results[result];
+	}
+
+	/**
+	 * The getter for the first hole played on the way to a result
+	 * 
+	 * @param result The number of the result (0 to getResultCount() - 1)
+	 * @return the hole (0 to 5) the turn starts with
+	 */
+	public int getFirstHole(int result) {
+		checkResult(result);
+		return resultChains[resultChainStarts[result]];
+	}
+
+	/**
+	 * The getter for the number of moves played on the way to a result
+	 * 
+	 * @param result The number of the result (0 to getResultCount() - 1)
+	 * @return the number of moves in the result's chain
+	 */
+	public int getChainLength(int result) {
+		checkResult(result);
+		return resultChainLengths[result];
+	}
+
+	/**
+	 * The getter for one of the holes played on the way to a result
+	 * 
+	 * @param result The number of the result (0 to getResultCount() - 1)
+	 * @param move   The number of the move within the chain
+	 * @return the hole (0 to 5) played by the move
+	 */
+	public int getChainHole(int result, int move) {
+		checkResult(result);
+		if (move < 0 || move >= resultChainLengths[result]) {
+			throw new IndexOutOfBoundsException("Move " + move + " is not in the chain of result " + result);
+		}
+		return resultChains[resultChainStarts[result] + move];
+	}
+
+	/**
+	 * The getter for the number of moves made by the most recent solve
+	 * 
+	 * @return the number of moves made
+	 */
+	public long getMoveCount() {
+		return moveCount;
+	}
+
+	/**
+	 * The getter for the number of times the most recent solve reached a position
+	 * it had already reached, and so did not walk it again
+	 * 
+	 * @return the number of memo hits
+	 */
+	public long getMemoHits() {
+		return memoHits;
+	}
+
+	/**
+	 * The getter for the number of distinct positions the most recent solve
+	 * reached
+	 * 
+	 * @return the number of memo misses
+	 */
+	public long getMemoMisses() {
+		return memoMisses;
+	}
+
+	/**
+	 * A method that makes sure a result was found by the most recent solve
+	 * 
+	 * @param result The number of the result
+	 */
+	private void checkResult(int result) {
+		if (result < 0 || result >= resultCount) {
+			throw new IndexOutOfBoundsException("Result " + result + " out of " + resultCount);
+		}
+	}
+}
\ No newline at end of file
@@ -0,0 +1,219 @@
+package mancala;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A single game between a human player and the AI agent that is hosted by a
+ * {@link MancalaSessionManager}. Every session owns its own model and agent, and
+ * all access to them goes through this class so the session can be played from
+ * any thread
+ * 
+ * @author Michael Opheim
+ * @version 05/15/2023
+ */
+public class GameSession {
+
+	/** The number that uniquely identifies the session */
+	private final long id;
+
+	/** The game being played in the session */
+	private final MancalaModel model;
+
+	/** The AI agent playing against the human player */
+	private final ArtificialIntelligenceAgent aiAgent;
+
+	/** The last time (from System.nanoTime) the session was played */
+	private volatile long lastActivity;
+
+	/**
+	 * The turn the AI is currently playing, or null if it is not the AI's turn
+	 * (guarded by the session's lock)
+	 */
+	private CompletableFuture<GameSession> pendingAITurn;
+
+	/**
+	 * Constructor
+	 * 
+	 * @param id      The number that uniquely identifies the session
+	 * @param aiAgent The AI agent that will play against the human player
+	 */
+	public GameSession(long id, ArtificialIntelligenceAgent aiAgent) {
+		this.id = id;
+		this.aiAgent = aiAgent;
+		model = new MancalaModel();
+		model.setIsHumanGame(false);
+		lastActivity = System.nanoTime();
+	}
+
+	/**
+	 * Constructor (used to bring back a session saved by an {@link EngineSnapshot})
+	 * 
+	 * @param id      The number that uniquely identifies the session
+	 * @param aiAgent The AI agent that will play against the human player
+	 * @param state   A model holding the game to continue
+	 */
+	GameSession(long id, ArtificialIntelligenceAgent aiAgent, MancalaModel state) {
+		this(id, aiAgent);
+		model.copy(state.getBoard(), state.getCurrentPlayer(), state.getP1Store(), state.getP2Store());
+		model.setIsHumanGame(state.getIsHumanGame());
+	}
+
+	/**
+	 * The getter for the session's id
+	 * 
+	 * @return the number that uniquely identifies the session
+	 */
+	public long getId() {
+		return id;
+	}
+
+	/**
+	 * The getter for the AI agent playing in the session
+	 * 
+	 * @return the session's AI agent
+	 */
+	ArtificialIntelligenceAgent getAIAgent() {
+		return aiAgent;
+	}
+
+	/**
+	 * The getter for the last time the session was played
+	 * 
+	 * @return the last time (from System.nanoTime) a move was made in the session
+	 */
+	public long getLastActivity() {
+		return lastActivity;
+	}
+
+	/**
+	 * A method that makes a copy of the current state of the session's game
+	 * 
+	 * @return a new model holding the current state of the game
+	 */
+	public synchronized MancalaModel getModelSnapshot() {
+		MancalaModel snapshot = new MancalaModel();
+		snapshot.copy(model.getBoard(), model.getCurrentPlayer(), model.getP1Store(), model.getP2Store());
+		snapshot.setIsHumanGame(model.getIsHumanGame());
+		return snapshot;
+	}
+
+	/**
+	 * A method that checks whether the AI is currently playing its turn
+	 * 
+	 * @return true if the AI is playing its turn, and false otherwise
+	 */
+	public synchronized boolean isAITurnPending() {
+		return pendingAITurn != null;
+	}
+
+	/**
+	 * A method that checks whether the session's game is over
+	 * 
+	 * @return true if the game is over, and false otherwise
+	 */
+	public synchronized boolean isGameOver() {
+		return model.isWinningState();
+	}
+
+	/**
+	 * A method that tells the players who won once the game is over
+	 * 
+	 * @return a message stating who won the game or if the game was a tie
+	 */
+	public synchronized String displayWinner() {
+		return model.displayWinner();
+	}
+
+	/**
+	 * A method that resets the session's board so a new game can be played, with
+	 * the human player moving first
+	 */
+	public synchronized void startNewGame() {
+		lastActivity = System.nanoTime();
+		model.initializeBoard();
+	}
+
+	/**
+	 * A method that makes a move for the human player (player 1)
+	 * 
+	 * @param hole The hole the player selected (holes 0 to 5)
+	 * @return true if the move was made, and false if it was not the human
+	 *         player's turn or the move was not valid
+	 */
+	synchronized boolean playHumanMove(int hole) {
+		lastActivity = System.nanoTime();
+
+		// Make sure that it is the human player's turn and that the hole contains
+		// stones
+		if (pendingAITurn != null || model.getCurrentPlayer() != 0 || !model.isValidInput(0, hole)
+				|| model.getBoard()[0][hole] == 0) {
+			return false;
+		}
+
+		model.moveStones(hole);
+		endGameIfOver();
+		return true;
+	}
+
+	/**
+	 * A method that has the AI agent make a single move
+	 * 
+	 * @return true if the AI gets another turn, and false otherwise
+	 */
+	synchronized boolean playAIMove() {
+		lastActivity = System.nanoTime();
+		if (model.getCurrentPlayer() != 1 || model.isWinningState()) {
+			return false;
+		}
+
+		model.moveStones(aiAgent.chooseMove(model));
+		endGameIfOver();
+		return model.getCurrentPlayer() == 1 && !model.isWinningState();
+	}
+
+	/**
+	 * A method that records that the AI has started playing its turn
+	 * 
+	 * @return the turn the AI is playing, or null if it is not the AI's turn
+	 */
+	synchronized CompletableFuture<GameSession> beginAITurn() {
+		if (model.getCurrentPlayer() != 1 || model.isWinningState()) {
+			return null;
+		}
+		pendingAITurn = new CompletableFuture<>();
+		return pendingAITurn;
+	}
+
+	/**
+	 * A method that records that the AI has finished playing its turn
+	 * 
+	 * @param error The error that stopped the AI from playing, or null if there
+	 *              was none
+	 */
+	void endAITurn(Throwable error) {
+		CompletableFuture<GameSession> turn;
+		synchronized (this) {
+			turn = pendingAITurn;
+			pendingAITurn = null;
+		}
+
+		// Complete the turn outside the lock so callbacks can use the session
+		if (turn != null) {
+			if (error == null) {
+				turn.complete(this);
+			} else {
+				turn.completeExceptionally(error);
+			}
+		}
+	}
+
+	/**
+	 * A method that adds the remaining stones to the players' stores once the game
+	 * is over
+	 */
+	private void endGameIfOver() {
+		if (model.isWinningState()) {
+			model.addRemainingStonesToPlayersStore();
+		}
+	}
+}
\ No newline at end of file
@@ -0,0 +1,409 @@
+package mancala;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The command line launcher for the mancala engine. It runs analysis jobs
+ * (finding moves, playing the AI against itself and timing the engine) without
+ * loading any of the JavaFX classes the GUI needs, so short jobs start quickly
+ * 
+ * Positions are written as 15 comma-separated numbers: player 1's six holes,
+ * player 2's six holes, player 1's store, player 2's store and the player to
+ * move (1 or 2)
+ * 
+ * @author Michael Opheim
+ * @version 05/15/2023
+ */
+public final class MancalaCli {
+
+	/** The position every game starts from, with player 1 to move */
+	private static final String STARTING_POSITION = "6,6,6,6,6,6,6,6,6,6,6,6,0,0,1";
+
+	/** The seed the stress command builds its corpus from */
+	private static final long STRESS_SEED = 20230515;
+
+	/** The seed the playouts command checks the playout kernel with */
+	private static final long PLAYOUT_SEED = 20230515;
+
+	/** The seed the tournament command derives its openings from */
+	private static final long TOURNAMENT_SEED = 20230515;
+
+	/** The instructions printed when the command line can not be understood */
+	private static final String USAGE = String.join(System.lineSeparator(),
+			"Usage: mancala [--metrics <port>] <command> [arguments]", "",
+			"  --metrics <port>             serve the engine's metrics at /metrics while the command runs", "",
+			"  bestmove [depth] [position]  find the best move for the player to move",
+			"  selfplay [games] [depth]     play the AI against itself from the start",
+			"  nodes [depth] [position]     count the positions each move ordering searches",
+			"  playouts [count]             play random games from the start and count the winners",
+			"  playouts --verify            check the playout kernel against the model's rules",
+			"  stress [threads] [positions] [depth]",
+			"                               check that turns played on many threads match a serial run",
+			"  tournament [pairs] [threads] [levels...]",
+			"                               play difficulty levels against each other, without time budgets");
+
+	/**
+	 * Constructor (the class only has static methods, so it is never instantiated)
+	 */
+	private MancalaCli() {
+	}
+
+	/**
+	 * The method that runs a command
+	 * 
+	 * @param args The command followed by its arguments
+	 */
+	public static void main(String[] args) {
+		MetricsEndpoint metricsEndpoint = null;
+		try {
+
+			// Serve the engine's metrics while the command runs if a port was given
+			if (args.length > 0 && args[0].equals("--metrics")) {
+				metricsEndpoint = startMetricsEndpoint(args);
+				args = Arrays.copyOfRange(args, 2, args.length);
+			}
+			if (args.length == 0) {
+				System.err.println(USAGE);
+				System.exit(2);
+			}
+
+			String[] arguments = Arrays.copyOfRange(args, 1, args.length);
+			switch (args[0]) {
+			case "bestmove":
+				bestMove(arguments);
+				break;
+			case "selfplay":
+				selfPlay(arguments);
+				break;
+			case "nodes":
+				countNodes(arguments);
+				break;
+			case "playouts":
+				playOuts(arguments);
+				break;
+			case "stress":
+				stress(arguments);
+				break;
+			case "tournament":
+				tournament(arguments);
+				break;
+			default:
+				System.err.println("Unknown command: " + args[0]);
+				System.err.println(USAGE);
+				System.exit(2);
+			}
+		} catch (IllegalArgumentException e) {
+			System.err.println(e.getMessage());
+			System.exit(2);
+		} finally {
+			if (metricsEndpoint != null) {
+				metricsEndpoint.stop();
+			}
+		}
+	}
+
+	/**
+	 * A method that starts serving the engine's metrics over HTTP
+	 * 
+	 * @param args The command line, starting with --metrics and the port
+	 * @return the running server
+	 */
+	private static MetricsEndpoint startMetricsEndpoint(String[] args) {
+		if (args.length < 2) {
+			throw new IllegalArgumentException("--metrics needs a port");
+		}
+		int port = intArgument(args, 1, 0);
+		try {
+			MetricsEndpoint endpoint = new MetricsEndpoint(port);
+			endpoint.start();
+			System.err.printf("Serving metrics at http://localhost:%d%s%n", endpoint.getPort(), MetricsEndpoint.PATH);
+			return endpoint;
+		} catch (IOException e) {
+			throw new IllegalArgumentException("Could not serve metrics on port " + port + ": " + e.getMessage());
+		}
+	}
+
+	/**
+	 * A method that finds and prints the best move for the player to move
+	 * 
+	 * @param args The search depth and the position (both optional)
+	 */
+	private static void bestMove(String[] args) {
+		int depth = intArgument(args, 0, ArtificialIntelligenceAgent.DEFAULT_SEARCH_DEPTH);
+		MancalaModel model = parsePosition((args.length > 1) ? args[1] : STARTING_POSITION);
+		if (model.isWinningState()) {
+			throw new IllegalArgumentException("The game is already over");
+		}
+
+		ArtificialIntelligenceAgent aiAgent = new ArtificialIntelligenceAgent(depth,
+				ArtificialIntelligenceAgent.MoveOrdering.KILLER_HISTORY);
+		long start = System.nanoTime();
+		int hole = aiAgent.chooseMove(model);
+		long elapsed = System.nanoTime() - start;
+		System.out.printf("Player %d should play hole %d (%d positions searched in %.1f ms)%n",
+				model.getCurrentPlayer() + 1, hole + 1, aiAgent.getNodeCount(), elapsed / 1e6);
+	}
+
+	/**
+	 * A method that plays the AI against itself and prints how the games went
+	 * 
+	 * @param args The number of games and the search depth (both optional)
+	 */
+	private static void selfPlay(String[] args) {
+		int games = intArgument(args, 0, 1);
+		int depth = intArgument(args, 1, ArtificialIntelligenceAgent.DEFAULT_SEARCH_DEPTH);
+		ArtificialIntelligenceAgent[] aiAgents = {
+				new ArtificialIntelligenceAgent(depth, ArtificialIntelligenceAgent.MoveOrdering.KILLER_HISTORY),
+				new ArtificialIntelligenceAgent(depth, ArtificialIntelligenceAgent.MoveOrdering.KILLER_HISTORY) };
+		MancalaModel model = new MancalaModel();
+		int[] wins = new int[3];
+
+		long start = System.nanoTime();
+		for (int game = 0; game < games; game++) {
+
+			// Alternate which player moves first so neither side always has the
+			// advantage
+			model.initializeBoard();
+			model.copy(model.getBoard(), game % 2, 0, 0);
+			int moves = 0;
+			while (!model.isWinningState()) {
+				model.moveStones(aiAgents[model.getCurrentPlayer()].chooseMove(model));
+				moves++;
+			}
+			model.addRemainingStonesToPlayersStore();
+
+			System.out.printf("Game %d: %d - %d after %d moves%n", game + 1, model.getP1Store(), model.getP2Store(),
+					moves);
+			if (model.getP1Store() > model.getP2Store()) {
+				wins[0]++;
+			} else if (model.getP2Store() > model.getP1Store()) {
+				wins[1]++;
+			} else {
+				wins[2]++;
+			}
+		}
+		System.out.printf("Player 1 won %d, player 2 won %d, %d tied (%.1f ms)%n", wins[0], wins[1], wins[2],
+				(System.nanoTime() - start) / 1e6);
+	}
+
+	/**
+	 * A method that prints the number of positions each move ordering policy
+	 * searches from a position
+	 * 
+	 * @param args The search depth and the position (both optional)
+	 */
+	private static void countNodes(String[] args) {
+		int depth = intArgument(args, 0, ArtificialIntelligenceAgent.DEFAULT_SEARCH_DEPTH);
+		MancalaModel model = parsePosition((args.length > 1) ? args[1] : STARTING_POSITION);
+		Map<ArtificialIntelligenceAgent.MoveOrdering, Long> nodeCounts = ArtificialIntelligenceAgent
+				.countNodesPerOrdering(model, depth);
+		for (Map.Entry<ArtificialIntelligenceAgent.MoveOrdering, Long> entry : nodeCounts.entrySet()) {
+			System.out.printf("%-15s %d%n", entry.getKey(), entry.getValue());
+		}
+	}
+
+	/**
+	 * A method that plays random games from the starting position and prints who
+	 * won them
+	 * 
+	 * @param args The number of games (optional), or --verify to check the kernel
+	 *             instead
+	 */
+	private static void playOuts(String[] args) {
+		if (args.length > 0 && args[0].equals("--verify")) {
+			verifyPlayouts();
+			return;
+		}
+		int playouts = intArgument(args, 0, 100000);
+		BatchPlayoutKernel kernel = BatchPlayoutKernel.create(4096, System.nanoTime());
+		MancalaModel model = parsePosition(STARTING_POSITION);
+
+		long start = System.nanoTime();
+		long[] results = kernel.runPlayouts(model, playouts);
+		double seconds = (System.nanoTime() - start) / 1e9;
+		System.out.printf("Player 1 won %d, player 2 won %d, %d tied (%.0f playouts/s with %s)%n", results[0],
+				results[1], results[2], playouts / seconds, kernel.getClass().getSimpleName());
+	}
+
+	/**
+	 * A method that checks the batch playout kernel against MancalaModel, from the
+	 * starting position and from a seeded corpus of positions, and checks that it
+	 * counts the same winners as the scalar kernel. It exits with status 1 if
+	 * anything does not match
+	 */
+	private static void verifyPlayouts() {
+		BatchPlayoutKernel kernel = BatchPlayoutKernel.create(4096, PLAYOUT_SEED);
+		String name = kernel.getClass().getSimpleName();
+		boolean matched = kernel.verifyAgainstModel();
+
+		// Play from positions part way through games as well, where captures and
+		// long sowings are more common
+		List<MancalaModel> corpus = EngineStressHarness.buildCorpus(kernel.getGameCount(), PLAYOUT_SEED);
+		kernel.reset(PLAYOUT_SEED);
+		for (int game = 0; game < kernel.getGameCount(); game++) {
+			kernel.load(game, corpus.get(game));
+		}
+		matched &= kernel.verifyAgainstModel();
+		System.out.printf("%s %s MancalaModel.moveStones%n", name, matched ? "matches" : "does not match");
+
+		// Count winners with both kernels, which should agree game for game
+		BatchPlayoutKernel scalarKernel = new ScalarBatchPlayoutKernel(4096);
+		scalarKernel.reset(PLAYOUT_SEED);
+		kernel.reset(PLAYOUT_SEED);
+		MancalaModel model = parsePosition(STARTING_POSITION);
+		long[] results = kernel.runPlayouts(model, 100000);
+		long[] scalarResults = scalarKernel.runPlayouts(model, 100000);
+		boolean sameResults = Arrays.equals(results, scalarResults);
+		System.out.printf("%s counted %s, ScalarBatchPlayoutKernel counted %s%n", name, Arrays.toString(results),
+				Arrays.toString(scalarResults));
+
+		if (!matched || !sameResults) {
+			System.out.println("The playout kernel does not follow the rules of MancalaModel");
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * A method that plays the AI's turn from a seeded corpus of positions on more
+	 * and more threads, with new, per-thread and session-held agents, exiting with
+	 * status 1 if any run played a turn differently than a serial run
+	 * 
+	 * @param args The most threads, the number of positions and the search depth
+	 *             (all optional)
+	 */
+	private static void stress(String[] args) {
+		int threads = intArgument(args, 0, Runtime.getRuntime().availableProcessors());
+		int positions = intArgument(args, 1, 200);
+		int depth = intArgument(args, 2, 4);
+		EngineStressHarness harness = new EngineStressHarness(positions, STRESS_SEED, depth,
+				ArtificialIntelligenceAgent.MoveOrdering.KILLER_HISTORY, 0);
+		try {
+			if (!harness.run(threads, System.out)) {
+				System.out.println("Concurrent turns did not match the serial run");
+				System.exit(1);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * A method that plays difficulty levels against each other in a round robin,
+	 * stopping each match once one level is shown to be stronger
+	 * 
+	 * @param args The most pairs of games per match, the number of threads and the
+	 *             levels taking part (all optional, and every level but Expert
+	 *             takes part if none are given)
+	 */
+	private static void tournament(String[] args) {
+		int pairs = intArgument(args, 0, 200);
+		int threads = intArgument(args, 1, Runtime.getRuntime().availableProcessors());
+		List<EngineTournament.Entrant> entrants = new ArrayList<>();
+		for (int index = 2; index < args.length; index++) {
+			entrants.add(new EngineTournament.Entrant(parseDifficulty(args[index])));
+		}
+		if (entrants.isEmpty()) {
+			for (ArtificialIntelligenceAgent.Difficulty difficulty : ArtificialIntelligenceAgent.Difficulty.values()) {
+				if (difficulty != ArtificialIntelligenceAgent.Difficulty.EXPERT) {
+					entrants.add(new EngineTournament.Entrant(difficulty));
+				}
+			}
+		}
+
+		EngineTournament tournament = new EngineTournament(entrants, TOURNAMENT_SEED, threads, pairs);
+		try {
+			tournament.run(System.out);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * A method that reads a difficulty level from the command line
+	 * 
+	 * @param level The name of the level (in any case)
+	 * @return the difficulty level
+	 */
+	private static ArtificialIntelligenceAgent.Difficulty parseDifficulty(String level) {
+		for (ArtificialIntelligenceAgent.Difficulty difficulty : ArtificialIntelligenceAgent.Difficulty.values()) {
+			if (difficulty.name().equalsIgnoreCase(level)) {
+				return difficulty;
+			}
+		}
+		throw new IllegalArgumentException("Unknown difficulty level: " + level);
+	}
+
+	/**
+	 * A method that reads a whole number from the command line
+	 * 
+	 * @param args         The command's arguments
+	 * @param index        The position of the number within the arguments
+	 * @param defaultValue The number to use if the argument was left out
+	 * @return the number
+	 */
+	private static int intArgument(String[] args, int index, int defaultValue) {
+		if (index >= args.length) {
+			return defaultValue;
+		}
+		try {
+			int value = Integer.parseInt(args[index]);
+			if (value < 1) {
+				throw new IllegalArgumentException("Expected a positive number but got " + args[index]);
+			}
+			return value;
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("Expected a number but got " + args[index]);
+		}
+	}
+
+	/**
+	 * A method that reads a position from the command line
+	 * 
+	 * @param position The position as 15 comma-separated numbers
+	 * @return a model holding the position
+	 */
+	static MancalaModel parsePosition(String position) {
+		String[] parts = position.split(",");
+		if (parts.length != 15) {
+			throw new IllegalArgumentException("A position needs 15 numbers but got " + parts.length);
+		}
+
+		int[] numbers = new int[parts.length];
+		for (int index = 0; index < parts.length; index++) {
+			try {
+				numbers[index] = Integer.parseInt(parts[index].trim());
+			} catch (NumberFormatException e) {
+				throw new IllegalArgumentException("Expected a number but got " + parts[index]);
+			}
+			if (numbers[index] < 0) {
+				throw new IllegalArgumentException("A position can not hold negative numbers");
+			}
+		}
+		long stones = 0;
+		for (int index = 0; index < 14; index++) {
+			stones += numbers[index];
+		}
+		if (stones > ExtraTurnChainSolver.MAX_STONES) {
+			throw new IllegalArgumentException(
+					"A position can hold at most " + ExtraTurnChainSolver.MAX_STONES + " stones in total");
+		}
+		if (numbers[14] != 1 && numbers[14] != 2) {
+			throw new IllegalArgumentException("The player to move must be 1 or 2");
+		}
+
+		int[][] board = new int[2][6];
+		for (int hole = 0; hole < 6; hole++) {
+			board[0][hole] = numbers[hole];
+			board[1][hole] = numbers[6 + hole];
+		}
+		MancalaModel model = new MancalaModel();
+		model.copy(board, numbers[14] - 1, numbers[12], numbers[13]);
+		return model;
+	}
+}
\ No newline at end of file
@@ -1,5 +1,7 @@
 package mancala;
 
+import java.util.Arrays;
+
 /**
  * The back-end/model of the mancala program; it handles configuring and
  * adjusting the board after each turn, following the rules of mancala
@@ -18,6 +20,34 @@ public class MancalaModel {
 	/** Player 2's store */
 	private int p2Store;
 
+	/**
+	 * The number of stones on each player's side of the board (position 0 is
+	 * player 1's row and position 1 is player 2's row), kept up to date as stones
+	 * are moved so it never has to be recounted
+	 */
+	private final int[] rowSums = new int[2];
+
+	/**
+	 * A bit mask for each player's side of the board where bit i is set if hole i
+	 * contains stones, kept up to date as stones are moved
+	 */
+	private final int[] nonEmptyHoles = new int[2];
+
+	/**
+	 * Whether moveStones records the events of each move (it is off by default so
+	 * the AI's simulated games do not pay for it)
+	 */
+	private boolean recordingMoveEvents;
+
+	/**
+	 * The events of the most recent move, packed as described in
+	 * {@link MoveEvents}. The buffer is reused for every move
+	 */
+	private int[] moveEvents = new int[80];
+
+	/** The number of events recorded for the most recent move */
+	private int moveEventCount;
+
 	/** A boolean that tracks whether a two-player or AI game is being played */
 	private boolean isHumanGame;
 
@@ -50,11 +80,14 @@ public class MancalaModel {
 	 */
 	public void copy(int[][] currentBoard, int player, int p1Store, int p2Store) {
 
-		// Copy the board
+		// Copy the board, adding up each player's side as we go
 		for (int row = 0; row < currentBoard.length; row++) {
+			rowSums[row] = 0;
 			for (int col = 0; col < currentBoard[row].length; col++) {
 				board[row][col] = currentBoard[row][col];
+				rowSums[row] += board[row][col];
 			}
+			nonEmptyHoles[row] = findNonEmptyHoles(row);
 		}
 
 		// Save the current player and the stores of the players
@@ -65,7 +98,8 @@ public class MancalaModel {
 	}
 
 	/**
-	 * The getter for the mancala board
+	 * The getter for the mancala board (the board should only be changed through
+	 * the model's methods, so the stone counts it keeps stay correct)
 	 * 
 	 * @return board The current state of the mancala board
 	 */
@@ -119,20 +153,74 @@ public class MancalaModel {
 		return isHumanGame;
 	}
 
+	/**
+	 * The setter for whether moveStones records the events of each move
+	 * 
+	 * @param recording true to record the events of each move, and false
+	 *                  otherwise
+	 */
+	public void setRecordingMoveEvents(boolean recording) {
+		recordingMoveEvents = recording;
+		moveEventCount = 0;
+	}
+
+	/**
+	 * The getter for the number of events recorded for the most recent move
+	 * 
+	 * @return the number of events, or 0 if events are not being recorded
+	 */
+	public int getMoveEventCount() {
+		return moveEventCount;
+	}
+
+	/**
+	 * The getter for one of the events recorded for the most recent move
+	 * 
+	 * @param index The position of the event (0 is the first event of the move)
+	 * @return the event, packed as described in {@link MoveEvents}
+	 */
+	public int getMoveEvent(int index) {
+		if (index < 0 || index >= moveEventCount) {
+			throw new IndexOutOfBoundsException("No move event at index " + index);
+		}
+		return moveEvents[index];
+	}
+
+	/**
+	 * A method that records an event of the current move, if events are being
+	 * recorded
+	 * 
+	 * @param type   The type of the event
+	 * @param row    The row of the board the event happened in
+	 * @param hole   The hole the event happened in
+	 * @param amount The number of stones involved
+	 */
+	private void recordMoveEvent(int type, int row, int hole, int amount) {
+		if (recordingMoveEvents) {
+			if (moveEventCount == moveEvents.length) {
+				moveEvents = Arrays.copyOf(moveEvents, moveEvents.length * 2);
+			}
+			moveEvents[moveEventCount++] = MoveEvents.encode(type, row, hole, amount);
+		}
+	}
+
 	/**
 	 * A method that initialzies the mancala game board - at the start, each slot on
-	 * the board contains six stones
+	 * the board contains six stones and player 1 moves first
 	 */
 	public void initializeBoard() {
 
 		p1Store = 0;
 		p2Store = 0;
+		row = 0;
 
 		// Fill each slot in the board with six stones
 		for (int row = 0; row < board.length; row++) {
 			for (int column = 0; column < board[row].length; column++) {
 				board[row][column] = 6;
 			}
+			rowSums[row] = 6 * board[row].length;
+			nonEmptyHoles[row] = findNonEmptyHoles(row);
 		}
 	}
 
@@ -153,33 +241,42 @@ public class MancalaModel {
 	}
 
 	/**
-	 * A method that adds up all of the stones on each player's side of the board to
-	 * determine if the game is over. It also helps determine the final score for
-	 * any particular game
+	 * The getter for the number of stones on one player's side of the board. It
+	 * determines if the game is over and helps determine the final score for any
+	 * particular game
 	 * 
-	 * @return an array where position 0 contains player 1's row sum and position 1
-	 *         is player 2's row sum
+	 * @param row The row of the board (0 for player 1's side and 1 for player 2's
+	 *            side)
+	 * @return the number of stones in the row's holes
 	 */
-	private int[] rowSums() {
-		int p1RowSum = 0;
-		int p2RowSum = 0;
+	public int getRowSum(int row) {
+		return rowSums[row];
+	}
 
-		// Add up the values, checking to see if the game is over
-		for (int row = 0; row < board.length; row++) {
-			for (int column = 0; column < board[row].length; column++) {
-				if (row == 0) {
-					p1RowSum += board[row][column];
-				} else {
-					p2RowSum += board[row][column];
-				}
+	/**
+	 * The getter for the holes the current player can move stones from
+	 * 
+	 * @return a bit mask where bit i is set if hole i (0 to 5) on the current
+	 *         player's side contains stones
+	 */
+	public int getLegalMoves() {
+		return nonEmptyHoles[row];
+	}
+
+	/**
+	 * A method that checks every hole in a row to see which ones contain stones
+	 * 
+	 * @param row The row of the board to check
+	 * @return a bit mask where bit i is set if hole i in the row contains stones
+	 */
+	private int findNonEmptyHoles(int row) {
+		int holes = 0;
+		for (int col = 0; col < board[row].length; col++) {
+			if (board[row][col] != 0) {
+				holes |= 1 << col;
 			}
 		}
-
-		// Return the values of the rows
-		int[] rowSums = new int[2];
-		rowSums[0] = p1RowSum;
-		rowSums[1] = p2RowSum;
-		return rowSums;
+		return holes;
 	}
 
 	/**
@@ -192,7 +289,6 @@ public class MancalaModel {
 	 *         player has won, and false otherwise)
 	 */
 	public boolean isWinningState() {
-		int[] rowSums = rowSums();
 
 		// If somebody has won, return true
 		if (rowSums[0] == 0 || rowSums[1] == 0) {
@@ -230,7 +326,6 @@ public class MancalaModel {
 	public void addRemainingStonesToPlayersStore() {
 
 		// Add any remaining stones to the players' stores
-		int[] rowSums = rowSums();
 		if (rowSums[0] == 0) {
 			p2Store += rowSums[1];
 		} else if (rowSums[1] == 0) {
@@ -242,6 +337,8 @@ public class MancalaModel {
 			for (int col = 0; col < board[row].length; col++) {
 				board[row][col] = 0;
 			}
+			rowSums[row] = 0;
+			nonEmptyHoles[row] = 0;
 		}
 	}
 
@@ -279,15 +376,30 @@ public class MancalaModel {
 		// Get the player
 		int originalPlayer = row;
 
+		// Start recording the events of this move
+		moveEventCount = 0;
+		recordMoveEvent(MoveEvents.PICK_UP, row, arrayPosition, stones);
+
+		// The hole and number of stones captured by the move, if any
+		int captureHole = -1;
+		int capturedStones = -1;
+
 		// Set the position that the player chose to -1 (it will initially become zero
 		// in the loop below)
 		board[row][arrayPosition] = -1;
+		rowSums[row] -= stones + 1;
+		nonEmptyHoles[row] &= ~(1 << arrayPosition);
 
 		// While we still have stones to distribute
 		while (stones >= 0) {
 
 			// Add them to the holes sequentially
 			board[row][arrayPosition] += 1;
+			rowSums[row] += 1;
+			if (board[row][arrayPosition] > 0) {
+				nonEmptyHoles[row] |= 1 << arrayPosition;
+				recordMoveEvent(MoveEvents.SOW, row, arrayPosition, 1);
+			}
 
 			// If we get to the end of player 2's row...
 			if (arrayPosition == 5 && row == 1) {
@@ -296,6 +408,7 @@ public class MancalaModel {
 				if (originalPlayer == row && stones >= 1) {
 					p2Store += 1;
 					stones--;
+					recordMoveEvent(MoveEvents.STORE, 1, 0, 1);
 
 					// Note whether the stone is the last stone because then player 2 will get
 					// another turn
@@ -315,6 +428,7 @@ public class MancalaModel {
 				if (originalPlayer == row && stones >= 1) {
 					p1Store += 1;
 					stones--;
+					recordMoveEvent(MoveEvents.STORE, 0, 0, 1);
 
 					// Note whether the stone is the last stone because then player 1 will get
 					// another turn
@@ -338,15 +452,22 @@ public class MancalaModel {
 
 			// Check to see if the last stone landed in an empty hole for captures
 			if (stones == 0) {
-				isStoneInEmptyHole(arrayPosition, originalPlayer);
+				capturedStones = isStoneInEmptyHole(arrayPosition, originalPlayer);
+				captureHole = arrayPosition;
 			}
 		}
 
+		// Record any capture after the last stone has landed
+		if (capturedStones >= 0) {
+			recordMoveEvent(MoveEvents.CAPTURE, (originalPlayer == 0) ? 1 : 0, captureHole, capturedStones);
+		}
+
 		// If the last stone ended up in the current player's store, give them another
 		// turn
 		if (inCurrentPlayersStore) {
 			inCurrentPlayersStore = false;
 			row = originalPlayer;
+			recordMoveEvent(MoveEvents.EXTRA_TURN, originalPlayer, 0, 0);
 
 			// Otherwise, let the other player have their turn
 		} else {
@@ -363,16 +484,22 @@ public class MancalaModel {
 	 * 
 	 * @param arrayPosition  The final array postion where the last stone landed
 	 * @param originalPlayer The current player
+	 * @return the number of stones captured, or -1 if there was no capture
 	 */
-	private void isStoneInEmptyHole(int arrayPosition, int originalPlayer) {
+	private int isStoneInEmptyHole(int arrayPosition, int originalPlayer) {
 		if (board[row][arrayPosition] == 0 && row == originalPlayer) {
+			int opponent = (originalPlayer == 0) ? 1 : 0;
 			if (originalPlayer == 0) {
 				p1Store += board[1][arrayPosition];
-				board[1][arrayPosition] = 0;
 			} else {
 				p2Store += board[0][arrayPosition];
-				board[0][arrayPosition] = 0;
 			}
+			int capturedStones = board[opponent][arrayPosition];
+			rowSums[opponent] -= capturedStones;
+			board[opponent][arrayPosition] = 0;
+			nonEmptyHoles[opponent] &= ~(1 << arrayPosition);
+			return capturedStones;
 		}
+		return -1;
 	}
 }
\ No newline at end of file
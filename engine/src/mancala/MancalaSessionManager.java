@@ -0,0 +1,314 @@
+package mancala;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hosts many independent human versus AI games in one process. The AI's turns
+ * are played on a fixed pool of threads, one move at a time: whenever the AI
+ * earns an extra turn, its next move goes to the back of the pool's queue, so a
+ * long chain of extra turns in one game cannot starve the other games. Sessions
+ * that have not been played for a while are evicted
+ * 
+ * @author Michael Opheim
+ * @version 05/15/2023
+ */
+public class MancalaSessionManager {
+
+	/** The sessions currently being hosted, by id */
+	private final Map<Long, GameSession> sessions;
+
+	/** The source of new session ids */
+	private final AtomicLong nextSessionId;
+
+	/** The threads that play the AI's turns */
+	private final ExecutorService aiExecutor;
+
+	/** The thread that evicts idle sessions */
+	private final ScheduledExecutorService evictionExecutor;
+
+	/** How long (in nanoseconds) a session can go unplayed before it is evicted */
+	private final long idleTimeoutNanos;
+
+	/**
+	 * The server serving the engine's metrics over HTTP, or null if it has not been
+	 * started (guarded by the manager's lock)
+	 */
+	private MetricsEndpoint metricsEndpoint;
+
+	/**
+	 * Constructor
+	 * 
+	 * @param aiThreads   The number of threads used to play the AI's turns
+	 * @param idleTimeout How long a session can go unplayed before it is evicted
+	 * @param unit        The unit of the idle timeout
+	 */
+	public MancalaSessionManager(int aiThreads, long idleTimeout, TimeUnit unit) {
+		if (aiThreads < 1) {
+			throw new IllegalArgumentException("At least one AI thread is needed");
+		}
+		sessions = new ConcurrentHashMap<>();
+		nextSessionId = new AtomicLong();
+		idleTimeoutNanos = unit.toNanos(idleTimeout);
+		aiExecutor = Executors.newFixedThreadPool(aiThreads, (runnable) -> {
+			Thread thread = new Thread(runnable, "mancala-ai");
+			thread.setDaemon(true);
+			return thread;
+		});
+		evictionExecutor = Executors.newSingleThreadScheduledExecutor((runnable) -> {
+			Thread thread = new Thread(runnable, "mancala-session-eviction");
+			thread.setDaemon(true);
+			return thread;
+		});
+
+		// Make the engine's metrics readable through JMX
+		EngineMetrics.registerMBean();
+
+		// Check for idle sessions a few times per timeout period
+		long evictionPeriod = Math.max(1, idleTimeoutNanos / 4);
+		evictionExecutor.scheduleAtFixedRate(this::evictIdleSessions, evictionPeriod, evictionPeriod,
+				TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * A method that starts hosting a new game
+	 * 
+	 * @param searchDepth  The depth (in turns) the session's AI searches to
+	 * @param moveOrdering The move ordering policy the session's AI uses
+	 * @return the new session
+	 */
+	public GameSession createSession(int searchDepth, ArtificialIntelligenceAgent.MoveOrdering moveOrdering) {
+		return createSession(new ArtificialIntelligenceAgent(searchDepth, moveOrdering));
+	}
+
+	/**
+	 * A method that starts hosting a new game
+	 * 
+	 * @param difficulty The strength the session's AI plays at
+	 * @return the new session
+	 */
+	public GameSession createSession(ArtificialIntelligenceAgent.Difficulty difficulty) {
+		return createSession(new ArtificialIntelligenceAgent(difficulty));
+	}
+
+	/**
+	 * A method that starts hosting a new game against the given AI agent
+	 * 
+	 * @param aiAgent The AI agent that will play in the session
+	 * @return the new session
+	 */
+	private GameSession createSession(ArtificialIntelligenceAgent aiAgent) {
+		long id = nextSessionId.incrementAndGet();
+		GameSession session = new GameSession(id, aiAgent);
+		sessions.put(id, session);
+		EngineMetrics.getInstance().gameStarted();
+		return session;
+	}
+
+	/**
+	 * A method that starts hosting a session saved by an {@link EngineSnapshot}.
+	 * If it was the AI's turn when the session was saved, the AI starts playing
+	 * straight away
+	 * 
+	 * @param session The session to host
+	 * @return a future that completes with the session once it is the human
+	 *         player's turn (or the game is over)
+	 * @throws IllegalStateException if the manager already hosts a session with
+	 *                               the same id
+	 */
+	CompletableFuture<GameSession> restoreSession(GameSession session) {
+		nextSessionId.accumulateAndGet(session.getId(), Math::max);
+		if (sessions.putIfAbsent(session.getId(), session) != null) {
+			throw new IllegalStateException("A session with id " + session.getId() + " is already being hosted");
+		}
+		EngineMetrics.getInstance().gameStarted();
+		CompletableFuture<GameSession> aiTurn = session.beginAITurn();
+		if (aiTurn == null) {
+			return CompletableFuture.completedFuture(session);
+		}
+		scheduleAIMove(session);
+		return aiTurn;
+	}
+
+	/**
+	 * The getter for the id given to the most recently created session
+	 * 
+	 * @return the largest session id handed out so far
+	 */
+	long getLastSessionId() {
+		return nextSessionId.get();
+	}
+
+	/**
+	 * A method that makes sure new sessions are not given any id handed out before
+	 * an {@link EngineSnapshot} was saved
+	 * 
+	 * @param lastSessionId The largest session id handed out when the snapshot was
+	 *                      saved
+	 */
+	void restoreLastSessionId(long lastSessionId) {
+		nextSessionId.accumulateAndGet(lastSessionId, Math::max);
+	}
+
+	/**
+	 * The getter for a hosted session
+	 * 
+	 * @param id The id of the session
+	 * @return the session, or null if no session has that id
+	 */
+	public GameSession getSession(long id) {
+		return sessions.get(id);
+	}
+
+	/**
+	 * The getter for every hosted session
+	 * 
+	 * @return a read-only view of the hosted sessions
+	 */
+	public Collection<GameSession> getSessions() {
+		return Collections.unmodifiableCollection(sessions.values());
+	}
+
+	/**
+	 * The getter for the number of sessions currently being hosted
+	 * 
+	 * @return the number of hosted sessions
+	 */
+	public int getActiveSessionCount() {
+		return sessions.size();
+	}
+
+	/**
+	 * A method that stops hosting a session
+	 * 
+	 * @param id The id of the session
+	 * @return the session that was removed, or null if no session has that id
+	 */
+	public GameSession removeSession(long id) {
+		GameSession session = sessions.remove(id);
+		if (session != null) {
+			EngineMetrics.getInstance().gameEnded();
+		}
+		return session;
+	}
+
+	/**
+	 * A method that makes a move for the human player of a session and then lets
+	 * the AI respond
+	 * 
+	 * @param id   The id of the session
+	 * @param hole The hole the player selected (holes 0 to 5)
+	 * @return a future that completes with the session once it is the human
+	 *         player's turn again (or the game is over)
+	 */
+	public CompletableFuture<GameSession> submitMove(long id, int hole) {
+		GameSession session = sessions.get(id);
+		if (session == null) {
+			return CompletableFuture.failedFuture(new IllegalArgumentException("No session with id " + id));
+		}
+		if (!session.playHumanMove(hole)) {
+			return CompletableFuture
+					.failedFuture(new IllegalArgumentException("Hole " + hole + " can not be played right now"));
+		}
+
+		// If the human player earned an extra turn, there is nothing for the AI to do
+		CompletableFuture<GameSession> aiTurn = session.beginAITurn();
+		if (aiTurn == null) {
+			return CompletableFuture.completedFuture(session);
+		}
+		scheduleAIMove(session);
+		return aiTurn;
+	}
+
+	/**
+	 * A method that queues a single AI move for a session
+	 * 
+	 * @param session The session the AI is playing in
+	 */
+	private void scheduleAIMove(GameSession session) {
+		try {
+			aiExecutor.execute(() -> {
+				try {
+
+					// Requeue the session behind the others if the AI earned another turn
+					if (session.playAIMove()) {
+						scheduleAIMove(session);
+					} else {
+						session.endAITurn(null);
+					}
+				} catch (RuntimeException e) {
+					session.endAITurn(e);
+				}
+			});
+		} catch (RejectedExecutionException e) {
+
+			// The manager has been shut down, so fail the turn rather than leaving the
+			// session waiting for a move that will never be played
+			session.endAITurn(e);
+		}
+	}
+
+	/**
+	 * A method that stops hosting every session that has not been played within
+	 * the idle timeout
+	 */
+	private void evictIdleSessions() {
+		long now = System.nanoTime();
+		for (GameSession session : sessions.values()) {
+			if (!session.isAITurnPending() && now - session.getLastActivity() > idleTimeoutNanos
+					&& sessions.remove(session.getId(), session)) {
+				EngineMetrics.getInstance().gameEnded();
+			}
+		}
+	}
+
+	/**
+	 * A method that starts serving the engine's metrics over HTTP in the
+	 * Prometheus text format (see {@link MetricsEndpoint}). The server is stopped
+	 * when the manager is shut down
+	 * 
+	 * @param port The port to serve the metrics on (0 picks any free port)
+	 * @return the port the metrics are served on
+	 * @throws IOException if the server could not be started
+	 */
+	public synchronized int startMetricsEndpoint(int port) throws IOException {
+		if (metricsEndpoint == null) {
+			MetricsEndpoint endpoint = new MetricsEndpoint(port);
+			endpoint.start();
+			metricsEndpoint = endpoint;
+		}
+		return metricsEndpoint.getPort();
+	}
+
+	/**
+	 * A method that stops the threads used by the manager. Any AI turn still being
+	 * played is failed with a CancellationException, so no session is left waiting
+	 * for a move that will never be played
+	 */
+	public void shutdown() {
+		evictionExecutor.shutdownNow();
+		aiExecutor.shutdownNow();
+		for (GameSession session : sessions.values()) {
+			if (session.isAITurnPending()) {
+				session.endAITurn(new CancellationException("The session manager was shut down"));
+			}
+		}
+		synchronized (this) {
+			if (metricsEndpoint != null) {
+				metricsEndpoint.stop();
+				metricsEndpoint = null;
+			}
+		}
+	}
+}
\ No newline at end of file
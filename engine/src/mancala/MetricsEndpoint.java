@@ -0,0 +1,83 @@
+package mancala;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * A small HTTP server that serves the engine's metrics at /metrics in the
+ * Prometheus text format
+ * 
+ * @author Michael Opheim
+ * @version 05/15/2023
+ */
+public class MetricsEndpoint {
+
+	/** The path the metrics are served at */
+	public static final String PATH = "/metrics";
+
+	/** The HTTP server serving the metrics */
+	private final HttpServer server;
+
+	/**
+	 * Constructor
+	 * 
+	 * @param port The port to serve the metrics on (0 picks any free port)
+	 * @throws IOException if the server could not be created
+	 */
+	public MetricsEndpoint(int port) throws IOException {
+		server = HttpServer.create(new InetSocketAddress(port), 0);
+		server.createContext(PATH, this::handle);
+	}
+
+	/**
+	 * A method that starts serving the metrics
+	 */
+	public void start() {
+		server.start();
+	}
+
+	/**
+	 * A method that stops serving the metrics
+	 */
+	public void stop() {
+		server.stop(0);
+	}
+
+	/**
+	 * The getter for the port the metrics are served on
+	 * 
+	 * @return the port the server is listening on
+	 */
+	public int getPort() {
+		return server.getAddress().getPort();
+	}
+
+	/**
+	 * A method that answers a request for the metrics
+	 * 
+	 * @param exchange The request and its response
+	 * @throws IOException if the response could not be sent
+	 */
+	private void handle(HttpExchange exchange) throws IOException {
+		try {
+			if (!"GET".equals(exchange.getRequestMethod())) {
+				exchange.sendResponseHeaders(405, -1);
+				return;
+			}
+
+			byte[] body = EngineMetrics.getInstance().toPrometheusText().getBytes(StandardCharsets.UTF_8);
+			exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+			exchange.sendResponseHeaders(200, body.length);
+			try (OutputStream out = exchange.getResponseBody()) {
+				out.write(body);
+			}
+		} finally {
+			exchange.close();
+		}
+	}
+}
\ No newline at end of file
@@ -0,0 +1,114 @@
+package mancala;
+
+/**
+ * Describes the compact events a {@link MancalaModel} records while it moves
+ * stones. Each event is packed into a single int, so the model can reuse one
+ * buffer for every move and anything that replays a move (such as an animation
+ * or a replay of a saved game) can read the events without creating objects
+ * 
+ * An event holds a type, a row of the board, a hole in that row and an amount
+ * 
+ * @author Michael Opheim
+ * @version 05/15/2023
+ */
+public final class MoveEvents {
+
+	/**
+	 * The stones were picked up from a hole (the amount is the number of stones
+	 * picked up)
+	 */
+	public static final int PICK_UP = 1;
+
+	/** A stone was dropped into a hole (the amount is always 1) */
+	public static final int SOW = 2;
+
+	/**
+	 * A stone was dropped into the store of the player whose side the row is (the
+	 * amount is always 1 and the hole is unused)
+	 */
+	public static final int STORE = 3;
+
+	/**
+	 * The stones in a hole on the opponent's side were captured and moved to the
+	 * store of the player who moved (the amount is the number of stones captured)
+	 */
+	public static final int CAPTURE = 4;
+
+	/**
+	 * The player whose side the row is gets another turn (the hole and amount are
+	 * unused)
+	 */
+	public static final int EXTRA_TURN = 5;
+
+	/** The position of the type within an event */
+	private static final int TYPE_SHIFT = 24;
+
+	/** The position of the row within an event */
+	private static final int ROW_SHIFT = 20;
+
+	/** The position of the hole within an event */
+	private static final int HOLE_SHIFT = 16;
+
+	/** The bits of an event that hold the amount */
+	private static final int AMOUNT_MASK = 0xFFFF;
+
+	/**
+	 * Constructor (the class only has static methods, so it is never instantiated)
+	 */
+	private MoveEvents() {
+	}
+
+	/**
+	 * A method that packs the parts of an event into a single int
+	 * 
+	 * @param type   The type of the event
+	 * @param row    The row of the board the event happened in
+	 * @param hole   The hole (0 to 5) the event happened in
+	 * @param amount The number of stones involved
+	 * @return the packed event
+	 */
+	public static int encode(int type, int row, int hole, int amount) {
+		return (type << TYPE_SHIFT) | (row << ROW_SHIFT) | (hole << HOLE_SHIFT) | (amount & AMOUNT_MASK);
+	}
+
+	/**
+	 * The getter for the type of an event
+	 * 
+	 * @param event The packed event
+	 * @return the type of the event (for example PICK_UP or SOW)
+	 */
+	public static int type(int event) {
+		return event >>> TYPE_SHIFT;
+	}
+
+	/**
+	 * The getter for the row an event happened in
+	 * 
+	 * @param event The packed event
+	 * @return the row of the board (0 for player 1's side and 1 for player 2's
+	 *         side)
+	 */
+	public static int row(int event) {
+		return (event >>> ROW_SHIFT) & 0xF;
+	}
+
+	/**
+	 * The getter for the hole an event happened in
+	 * 
+	 * @param event The packed event
+	 * @return the hole (0 to 5) within the row
+	 */
+	public static int hole(int event) {
+		return (event >>> HOLE_SHIFT) & 0xF;
+	}
+
+	/**
+	 * The getter for the number of stones involved in an event
+	 * 
+	 * @param event The packed event
+	 * @return the number of stones involved
+	 */
+	public static int amount(int event) {
+		return event & AMOUNT_MASK;
+	}
+}
\ No newline at end of file
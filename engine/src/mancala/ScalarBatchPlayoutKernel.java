@@ -0,0 +1,284 @@
+package mancala;
+
+/**
+ * The batch playout kernel that steps one game at a time. It works on every JVM
+ * and is the reference the vector kernel must agree with. Without vector
+ * instructions there is nothing to gain from keeping the games in lockstep, so
+ * runPlayouts plays each game to the end on its own, which keeps it at least as
+ * fast as playing random games with MancalaModel
+ * 
+ * @author Michael Opheim
+ * @version 05/15/2023
+ */
+public class ScalarBatchPlayoutKernel extends BatchPlayoutKernel {
+
+	/** The slot at each position in the order player 1 sows stones */
+	private static final int[] P1_RING_SLOT = ringSlots(P1_RING_POSITION);
+
+	/** The slot at each position in the order player 2 sows stones */
+	private static final int[] P2_RING_SLOT = ringSlots(P2_RING_POSITION);
+
+	/** The game being moved in, copied out of the kernel's arrays */
+	private final int[] board = new int[SLOTS];
+
+	/**
+	 * The games being played by runPlayouts, as a binary min-heap of their endings
+	 * (the step each game ends on in the high bits and the game in the low bits)
+	 */
+	private final long[] endings;
+
+	/** The number of endings in the heap */
+	private int endingCount;
+
+	/**
+	 * Constructor
+	 * 
+	 * @param games The number of games to play
+	 */
+	public ScalarBatchPlayoutKernel(int games) {
+		super(games, 1);
+		endings = new long[games];
+	}
+
+	@Override
+	public void step() {
+		for (int game = 0; game < capacity; game++) {
+			if (active[game] == 0) {
+				lastMove[game] = -1;
+				continue;
+			}
+			stepGame(game);
+		}
+	}
+
+	/**
+	 * A method that plays random games from a position and counts who wins them,
+	 * with exactly the same results as stepping every game in lockstep. Each game
+	 * is played to the end on its own (which is much faster one game at a time),
+	 * and the step it would have ended on in lockstep is remembered, so the games
+	 * can be counted and restarted in the same order the lockstep loop would
+	 * count and restart them
+	 * 
+	 * @param start    The position to play from
+	 * @param playouts The number of games to play
+	 * @return the number of games won by player 1 (index 0) and player 2 (index
+	 *         1), and the number of ties (index 2)
+	 */
+	@Override
+	public long[] runPlayouts(MancalaModel start, long playouts) {
+		if (start.isWinningState() || playouts <= 0) {
+			return super.runPlayouts(start, playouts);
+		}
+
+		// Play the first game of as many games as are needed, remembering when each
+		// one ends
+		endingCount = 0;
+		long started = 0;
+		for (int game = 0; game < games; game++) {
+			if (started < playouts) {
+				load(game, start);
+				started++;
+				addEnding(((long) playToEnd(game) << 32) | game);
+			} else {
+				active[game] = 0;
+				lastMove[game] = -1;
+			}
+		}
+
+		// Count the games in the order they end, restarting each one if more games
+		// are needed
+		long[] results = new long[3];
+		while (endingCount > 0) {
+			long ending = pollEnding();
+			int game = (int) ending;
+			results[outcome(slots[P1_STORE][game], slots[P2_STORE][game])]++;
+			if (started < playouts) {
+				load(game, start);
+				started++;
+				addEnding((((ending >>> 32) + playToEnd(game)) << 32) | game);
+			}
+		}
+		return results;
+	}
+
+	/**
+	 * A method that adds a game's ending to the heap
+	 * 
+	 * @param ending The step the game ends on in the high bits and the game in the
+	 *               low bits
+	 */
+	private void addEnding(long ending) {
+		int index = endingCount++;
+		while (index > 0) {
+			int parent = (index - 1) >>> 1;
+			if (endings[parent] <= ending) {
+				break;
+			}
+			endings[index] = endings[parent];
+			index = parent;
+		}
+		endings[index] = ending;
+	}
+
+	/**
+	 * A method that takes the earliest ending out of the heap
+	 * 
+	 * @return the earliest ending (the step in the high bits and the game in the
+	 *         low bits)
+	 */
+	private long pollEnding() {
+		long earliest = endings[0];
+		long last = endings[--endingCount];
+		int index = 0;
+		while (true) {
+			int child = 2 * index + 1;
+			if (child >= endingCount) {
+				break;
+			}
+			if (child + 1 < endingCount && endings[child + 1] < endings[child]) {
+				child++;
+			}
+			if (last <= endings[child]) {
+				break;
+			}
+			endings[index] = endings[child];
+			index = child;
+		}
+		endings[index] = last;
+		return earliest;
+	}
+
+	/**
+	 * A method that makes random moves in a game until it is over
+	 * 
+	 * @param game The game to play
+	 * @return the number of moves made
+	 */
+	private int playToEnd(int game) {
+		int[] board = this.board;
+		for (int slot = 0; slot < SLOTS; slot++) {
+			board[slot] = slots[slot][game];
+		}
+		int moves = 0;
+		while (active[game] != 0) {
+			lastMove[game] = move(game, board);
+			moves++;
+		}
+		for (int slot = 0; slot < SLOTS; slot++) {
+			slots[slot][game] = board[slot];
+		}
+		return moves;
+	}
+
+	/**
+	 * A method that makes one random move in a game. The game is copied out of the
+	 * kernel's arrays into a single small array first, so the move itself is made
+	 * on a few cache lines instead of fourteen
+	 * 
+	 * @param game The game to move in
+	 */
+	private void stepGame(int game) {
+		int[] board = this.board;
+		for (int slot = 0; slot < SLOTS; slot++) {
+			board[slot] = slots[slot][game];
+		}
+		lastMove[game] = move(game, board);
+		for (int slot = 0; slot < SLOTS; slot++) {
+			slots[slot][game] = board[slot];
+		}
+	}
+
+	/**
+	 * A method that makes one random move in a game that has been copied out of the
+	 * kernel's arrays. The player to move, the random number generator and whether
+	 * the game is over are updated in the kernel's arrays
+	 * 
+	 * @param game  The game to move in
+	 * @param board The stones in each slot of the game
+	 * @return the hole (0 to 5) that was played
+	 */
+	private int move(int game, int[] board) {
+		int mover = player[game];
+		int firstHole = (mover == 0) ? 0 : 6;
+		int[] ringPosition = (mover == 0) ? P1_RING_POSITION : P2_RING_POSITION;
+		int[] ringSlot = (mover == 0) ? P1_RING_SLOT : P2_RING_SLOT;
+		int ownStore = (mover == 0) ? P1_STORE : P2_STORE;
+
+		// Count the holes the player can move from
+		int legalMoves = 0;
+		for (int hole = 0; hole < 6; hole++) {
+			if (board[firstHole + hole] > 0) {
+				legalMoves++;
+			}
+		}
+
+		// Pick one of them at random
+		int x = random[game];
+		x ^= x << 13;
+		x ^= x >>> 17;
+		x ^= x << 5;
+		random[game] = x;
+		int choice = (x >>> 1) % legalMoves;
+		int chosenHole = firstHole;
+		while (board[chosenHole] == 0 || choice-- > 0) {
+			chosenHole++;
+		}
+
+		// Pick up the stones and sow them one at a time around the ring
+		int position = ringPosition[chosenHole];
+		int stones = board[chosenHole];
+		board[chosenHole] = 0;
+		for (; stones > 0; stones--) {
+			position = (position == RING - 1) ? 0 : position + 1;
+			board[ringSlot[position]]++;
+		}
+		int landingSlot = ringSlot[position];
+
+		// If the last stone landed in an empty hole on the player's side, capture the
+		// stones in the hole opposite it
+		if (landingSlot >= firstHole && landingSlot < firstHole + 6 && board[landingSlot] == 1) {
+			int oppositeSlot = (landingSlot < 6) ? landingSlot + 6 : landingSlot - 6;
+			board[ownStore] += board[oppositeSlot];
+			board[oppositeSlot] = 0;
+		}
+
+		// The player moves again only if the last stone landed in their store
+		if (landingSlot != ownStore) {
+			player[game] = 1 - mover;
+		}
+
+		// If either side is empty, the game is over
+		int p1RowSum = 0;
+		int p2RowSum = 0;
+		for (int hole = 0; hole < 6; hole++) {
+			p1RowSum += board[hole];
+			p2RowSum += board[6 + hole];
+		}
+		if (p1RowSum == 0 || p2RowSum == 0) {
+			board[P1_STORE] += p1RowSum;
+			board[P2_STORE] += p2RowSum;
+			for (int slot = 0; slot < P1_STORE; slot++) {
+				board[slot] = 0;
+			}
+			active[game] = 0;
+		}
+		return chosenHole - firstHole;
+	}
+
+	/**
+	 * A method that inverts a table of ring positions
+	 * 
+	 * @param ringPosition The position of each slot in the order a player sows
+	 *                     stones, or -1 if the player skips the slot
+	 * @return the slot at each position in the order the player sows stones
+	 */
+	private static int[] ringSlots(int[] ringPosition) {
+		int[] ringSlot = new int[RING];
+		for (int slot = 0; slot < SLOTS; slot++) {
+			if (ringPosition[slot] >= 0) {
+				ringSlot[ringPosition[slot]] = slot;
+			}
+		}
+		return ringSlot;
+	}
+}
\ No newline at end of file
@@ -0,0 +1,167 @@
+package mancala;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * The batch playout kernel that steps as many games at once as the CPU's vector
+ * registers hold, using the incubating Vector API. Every game in a vector takes
+ * the same steps, and the differences between games (whose turn it is, which
+ * hole is picked, where the last stone lands) are handled with lane masks
+ * instead of branches
+ * 
+ * @author Michael Opheim
+ * @version 05/15/2023
+ */
+public class VectorBatchPlayoutKernel extends BatchPlayoutKernel {
+
+	/** The vector shape used for the games */
+	private static final VectorSpecies<Integer> SPECIES = IntVector.SPECIES_PREFERRED;
+
+	/**
+	 * Constructor
+	 * 
+	 * @param games The number of games to play
+	 */
+	public VectorBatchPlayoutKernel(int games) {
+		super(games, SPECIES.length());
+	}
+
+	@Override
+	public void step() {
+		for (int lane = 0; lane < capacity; lane += SPECIES.length()) {
+			stepLanes(lane);
+		}
+	}
+
+	/**
+	 * A method that makes one random move in each game of a vector of games
+	 * 
+	 * @param lane The first game of the vector
+	 */
+	private void stepLanes(int lane) {
+		VectorMask<Integer> playing = IntVector.fromArray(SPECIES, active, lane).compare(VectorOperators.NE, 0);
+		if (!playing.anyTrue()) {
+			IntVector.broadcast(SPECIES, -1).intoArray(lastMove, lane);
+			return;
+		}
+		IntVector mover = IntVector.fromArray(SPECIES, player, lane);
+		VectorMask<Integer> p2Moving = mover.compare(VectorOperators.NE, 0);
+
+		// Count the holes each player can move from
+		IntVector legalMoves = IntVector.zero(SPECIES);
+		for (int hole = 0; hole < 6; hole++) {
+			IntVector stones = ownHole(hole, lane, p2Moving);
+			legalMoves = legalMoves.add(1, stones.compare(VectorOperators.GT, 0));
+		}
+
+		// Pick one of them at random (games that are over pretend to have one move)
+		IntVector x = IntVector.fromArray(SPECIES, random, lane);
+		x = x.lanewise(VectorOperators.XOR, x.lanewise(VectorOperators.LSHL, 13));
+		x = x.lanewise(VectorOperators.XOR, x.lanewise(VectorOperators.LSHR, 17));
+		x = x.lanewise(VectorOperators.XOR, x.lanewise(VectorOperators.LSHL, 5));
+		x.intoArray(random, lane, playing);
+		legalMoves = legalMoves.blend(1, legalMoves.compare(VectorOperators.EQ, 0));
+		IntVector positive = x.lanewise(VectorOperators.LSHR, 1);
+		IntVector choice = positive.sub(positive.div(legalMoves).mul(legalMoves));
+
+		IntVector chosenHole = IntVector.zero(SPECIES);
+		IntVector stones = IntVector.zero(SPECIES);
+		IntVector seen = IntVector.zero(SPECIES);
+		for (int hole = 0; hole < 6; hole++) {
+			IntVector holeStones = ownHole(hole, lane, p2Moving);
+			VectorMask<Integer> legal = holeStones.compare(VectorOperators.GT, 0);
+			VectorMask<Integer> chosen = legal.and(seen.compare(VectorOperators.EQ, choice));
+			chosenHole = chosenHole.blend(hole, chosen);
+			stones = stones.blend(holeStones, chosen);
+			seen = seen.add(1, legal);
+		}
+		stones = stones.blend(0, playing.not());
+		chosenHole.blend(-1, playing.not()).intoArray(lastMove, lane);
+
+		// Pick up the stones and sow them: every position gets a stone for each full
+		// lap, and the positions up to the remainder get one more
+		IntVector originSlot = chosenHole.add(6, p2Moving);
+		IntVector origin = chosenHole.neg().add(5).blend(chosenHole.add(6), p2Moving);
+		IntVector laps = stones.div(RING);
+		IntVector remainder = stones.sub(laps.mul(RING));
+		IntVector landing = origin.add(stones);
+		landing = landing.sub(landing.div(RING).mul(RING));
+		IntVector landingSlot = IntVector.broadcast(SPECIES, -1);
+
+		for (int slot = 0; slot < SLOTS; slot++) {
+			IntVector position = IntVector.broadcast(SPECIES, P1_RING_POSITION[slot])
+					.blend(P2_RING_POSITION[slot], p2Moving);
+			VectorMask<Integer> sown = playing.and(position.compare(VectorOperators.GE, 0));
+			IntVector distance = position.sub(origin);
+			distance = distance.add(RING, distance.compare(VectorOperators.LE, 0));
+			IntVector added = laps.add(1, distance.compare(VectorOperators.LE, remainder));
+
+			IntVector slotStones = IntVector.fromArray(SPECIES, slots[slot], lane);
+			slotStones = slotStones.blend(0, sown.and(originSlot.compare(VectorOperators.EQ, slot)));
+			slotStones.add(added, sown).intoArray(slots[slot], lane);
+			landingSlot = landingSlot.blend(slot, sown.and(position.compare(VectorOperators.EQ, landing)));
+		}
+
+		// If the last stone landed in an empty hole on the player's side, capture the
+		// stones in the hole opposite it
+		IntVector captured = IntVector.zero(SPECIES);
+		for (int slot = 0; slot < P1_STORE; slot++) {
+			VectorMask<Integer> ownSide = (slot < 6) ? p2Moving.not() : p2Moving;
+			VectorMask<Integer> landedHere = playing.and(ownSide).and(landingSlot.compare(VectorOperators.EQ, slot));
+			if (!landedHere.anyTrue()) {
+				continue;
+			}
+			IntVector slotStones = IntVector.fromArray(SPECIES, slots[slot], lane);
+			VectorMask<Integer> capture = landedHere.and(slotStones.compare(VectorOperators.EQ, 1));
+			int oppositeSlot = (slot < 6) ? slot + 6 : slot - 6;
+			IntVector opposite = IntVector.fromArray(SPECIES, slots[oppositeSlot], lane);
+			captured = captured.add(opposite, capture);
+			opposite.blend(0, capture).intoArray(slots[oppositeSlot], lane);
+		}
+		IntVector.fromArray(SPECIES, slots[P1_STORE], lane).add(captured, p2Moving.not())
+				.intoArray(slots[P1_STORE], lane);
+		IntVector.fromArray(SPECIES, slots[P2_STORE], lane).add(captured, p2Moving)
+				.intoArray(slots[P2_STORE], lane);
+
+		// The player moves again only if the last stone landed in their store
+		IntVector ownStore = IntVector.broadcast(SPECIES, P1_STORE).blend(P2_STORE, p2Moving);
+		VectorMask<Integer> switchPlayer = playing.and(landingSlot.compare(VectorOperators.NE, ownStore));
+		mover.blend(mover.neg().add(1), switchPlayer).intoArray(player, lane);
+
+		// If either side is empty, the game is over
+		IntVector p1RowSum = IntVector.zero(SPECIES);
+		IntVector p2RowSum = IntVector.zero(SPECIES);
+		for (int hole = 0; hole < 6; hole++) {
+			p1RowSum = p1RowSum.add(IntVector.fromArray(SPECIES, slots[hole], lane));
+			p2RowSum = p2RowSum.add(IntVector.fromArray(SPECIES, slots[6 + hole], lane));
+		}
+		VectorMask<Integer> over = playing
+				.and(p1RowSum.compare(VectorOperators.EQ, 0).or(p2RowSum.compare(VectorOperators.EQ, 0)));
+		if (over.anyTrue()) {
+			IntVector.fromArray(SPECIES, slots[P1_STORE], lane).add(p1RowSum, over).intoArray(slots[P1_STORE], lane);
+			IntVector.fromArray(SPECIES, slots[P2_STORE], lane).add(p2RowSum, over).intoArray(slots[P2_STORE], lane);
+			IntVector zero = IntVector.zero(SPECIES);
+			for (int slot = 0; slot < P1_STORE; slot++) {
+				zero.intoArray(slots[slot], lane, over);
+			}
+			zero.intoArray(active, lane, over);
+		}
+	}
+
+	/**
+	 * A method that loads the stones in one of the moving player's holes for a
+	 * vector of games
+	 * 
+	 * @param hole     The hole (0 to 5) on the moving player's side
+	 * @param lane     The first game of the vector
+	 * @param p2Moving Which games player 2 is moving in
+	 * @return the stones in the hole in each game
+	 */
+	private IntVector ownHole(int hole, int lane, VectorMask<Integer> p2Moving) {
+		return IntVector.fromArray(SPECIES, slots[hole], lane).blend(IntVector.fromArray(SPECIES, slots[6 + hole], lane),
+				p2Moving);
+	}
+}
\ No newline at end of file
@@ -0,0 +1,7 @@
+module mancala.engine {
+	requires java.management;
+	requires jdk.management;
+	requires jdk.httpserver;
+	requires static jdk.incubator.vector;
+	exports mancala;
+}
\ No newline at end of file
@@ -0,0 +1,40 @@
+#!/bin/sh
+# Builds the headless engine (the mancala.engine module, with no JavaFX) into
+# build/mancala-engine.jar and creates a class data sharing archive for it, so
+# short command line jobs skip most of the JVM's class loading work.
+#
+# Needs JDK 17 or later. Run it from anywhere; the outputs go in build/ at the
+# root of the repository. Afterwards, run the engine with scripts/mancala.sh
+set -e
+
+ROOT=$(cd "$(dirname "$0")/.." && pwd)
+BUILD="$ROOT/build"
+JAR="$BUILD/mancala-engine.jar"
+ARCHIVE="$BUILD/mancala-engine.jsa"
+
+# Compile and package the engine module
+rm -rf "$BUILD/classes"
+mkdir -p "$BUILD/classes"
+javac --release 17 -Xlint:all -d "$BUILD/classes" $(find "$ROOT/engine/src" -name '*.java') 2> "$BUILD/javac.log" \
+	|| { cat "$BUILD/javac.log" >&2; exit 1; }
+
+# javac always warns that the vector kernel uses an incubator module (no lint
+# option turns that off, so -Werror can not be used). Fail on any other warning
+if grep -v -e '^warning: using incubating module(s): jdk.incubator.vector$' -e '^1 warning$' "$BUILD/javac.log" \
+	| grep -q .; then
+	cat "$BUILD/javac.log" >&2
+	echo "The engine must compile without warnings" >&2
+	exit 1
+fi
+jar --create --file "$JAR" --main-class mancala.MancalaCli -C "$BUILD/classes" .
+
+# Run a short job that touches the engine's classes and archive every class it
+# loaded. The archive is only valid for this JDK and this jar, so rebuild it
+# whenever either changes
+rm -f "$ARCHIVE"
+java -XX:ArchiveClassesAtExit="$ARCHIVE" --module-path "$JAR" --module mancala.engine/mancala.MancalaCli \
+	selfplay 1 4 > /dev/null
+java -XX:SharedArchiveFile="$ARCHIVE" --module-path "$JAR" --module mancala.engine/mancala.MancalaCli \
+	bestmove 6 > /dev/null
+
+echo "Built $JAR and $ARCHIVE"
@@ -0,0 +1,26 @@
+#!/bin/sh
+# Runs the headless engine's command line launcher, using the class data
+# sharing archive built by scripts/build-engine.sh when there is one. Pass
+# --vector as the first argument to make the Vector API available to the
+# batch playout kernel.
+#
+# Example: scripts/mancala.sh bestmove 10 6,6,6,6,6,6,6,6,6,6,6,6,0,0,1
+ROOT=$(cd "$(dirname "$0")/.." && pwd)
+JAR="$ROOT/build/mancala-engine.jar"
+ARCHIVE="$ROOT/build/mancala-engine.jsa"
+
+if [ ! -f "$JAR" ]; then
+	echo "$JAR is missing, run scripts/build-engine.sh first" >&2
+	exit 1
+fi
+
+OPTIONS=""
+if [ -f "$ARCHIVE" ]; then
+	OPTIONS="-XX:SharedArchiveFile=$ARCHIVE"
+fi
+if [ "$1" = "--vector" ]; then
+	shift
+	OPTIONS="$OPTIONS --add-modules jdk.incubator.vector"
+fi
+
+exec java $OPTIONS --module-path "$JAR" --module mancala.engine/mancala.MancalaCli "$@"
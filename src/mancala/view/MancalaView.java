@@ -1,11 +1,27 @@
-package mancala;
+package mancala.view;
 
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
 import javafx.application.Application;
+import javafx.application.Platform;
+import javafx.beans.binding.Bindings;
+import javafx.beans.property.BooleanProperty;
+import javafx.beans.property.IntegerProperty;
+import javafx.beans.property.SimpleBooleanProperty;
+import javafx.beans.property.SimpleIntegerProperty;
+import javafx.beans.property.SimpleStringProperty;
+import javafx.beans.property.StringProperty;
+import javafx.concurrent.Task;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
 import javafx.scene.Scene;
 import javafx.scene.control.Alert;
 import javafx.scene.control.Button;
+import javafx.scene.control.ChoiceDialog;
 import javafx.scene.layout.BorderPane;
 import javafx.scene.layout.GridPane;
 import javafx.scene.layout.HBox;
@@ -14,6 +30,10 @@ import javafx.scene.text.Font;
 import javafx.scene.text.FontWeight;
 import javafx.scene.text.Text;
 import javafx.stage.Stage;
+import javafx.util.Duration;
+import mancala.ArtificialIntelligenceAgent;
+import mancala.MancalaModel;
+import mancala.MoveEvents;
 
 /**
  * The front-end/view for the mancala program. It displays an interactive
@@ -24,6 +44,9 @@ import javafx.stage.Stage;
  */
 public class MancalaView extends Application {
 
+	/** The time between each step of a move's animation */
+	private static final Duration SOWING_STEP = Duration.millis(150);
+
 	/** A reference to the model of the GUI */
 	private MancalaModel model;
 
@@ -36,6 +59,40 @@ public class MancalaView extends Application {
 	/** The Button to set the game to two-player mode */
 	private Button gameButtonHuman;
 
+	/** The number of stones in each hole of the board, as shown on the GUI */
+	private final IntegerProperty[][] holeStones = new IntegerProperty[2][6];
+
+	/** The number of stones in player 1's store, as shown on the GUI */
+	private final IntegerProperty p1StoreStones = new SimpleIntegerProperty();
+
+	/** The number of stones in player 2's store, as shown on the GUI */
+	private final IntegerProperty p2StoreStones = new SimpleIntegerProperty();
+
+	/** Whether a two-player game is being shown on the GUI */
+	private final BooleanProperty humanGame = new SimpleBooleanProperty();
+
+	/** The prompt stating whose turn it is, as shown on the GUI */
+	private final StringProperty playerTurnPrompt = new SimpleStringProperty();
+
+	/** The AI agent that plays against the user in AI games */
+	private ArtificialIntelligenceAgent aiAgent;
+
+	/** The animation of the move being shown, or null if no move is being shown */
+	private Timeline moveAnimation;
+
+	/** The AI's search for its next move, or null if the AI is not searching */
+	private Task<Integer> aiSearch;
+
+	/**
+	 * The thread the AI searches on, so the window keeps responding while it
+	 * thinks (a single thread, so an agent never runs two searches at once)
+	 */
+	private final ExecutorService aiExecutor = Executors.newSingleThreadExecutor((runnable) -> {
+		Thread thread = new Thread(runnable, "mancala-ai");
+		thread.setDaemon(true);
+		return thread;
+	});
+
 	@Override
 	/**
 	 * Creates the mancala GUI
@@ -54,9 +111,12 @@ public class MancalaView extends Application {
 
 			// Instantiate the back-end of the GUI
 			model = new MancalaModel();
+			model.setRecordingMoveEvents(true);
+			aiAgent = new ArtificialIntelligenceAgent(ArtificialIntelligenceAgent.Difficulty.HARD);
 
 			// Initiate the mancala board
-			fillBoard();
+			createBoard();
+			updateBoard();
 
 			// Create the mancala board image backdrop for the GUI
 			root.setStyle(" -fx-background-color: #ab6937; -fx-background-position: center, "
@@ -84,8 +144,9 @@ public class MancalaView extends Application {
 			// Create a button that allows the user to start a new game
 			Button startNewGame = new Button("Start New Game");
 			startNewGame.setOnAction((event) -> {
+				stopMoveAnimation();
 				model.initializeBoard();
-				fillBoard();
+				updateBoard();
 			});
 			startNewGame.setPrefSize(150, 40);
 			startNewGame.setStyle(" -fx-background-color: #7d4d29; -fx-text-fill: black; ");
@@ -94,15 +155,24 @@ public class MancalaView extends Application {
 			// Instantiate a button to allow the user to choose to play with an AI
 			gameButtonAI = new Button("Play with AI");
 			gameButtonAI.setOnAction((event) -> {
-				Alert alert = new Alert(Alert.AlertType.INFORMATION);
-				alert.setTitle("AI Game");
-				alert.setContentText("Starting new AI game");
-				alert.showAndWait();
+
+				// Let the user choose how strong the AI should be
+				ChoiceDialog<ArtificialIntelligenceAgent.Difficulty> difficultyDialog = new ChoiceDialog<>(
+						ArtificialIntelligenceAgent.Difficulty.MEDIUM, ArtificialIntelligenceAgent.Difficulty.values());
+				difficultyDialog.setTitle("AI Game");
+				difficultyDialog.setHeaderText("Starting new AI game");
+				difficultyDialog.setContentText("Difficulty:");
+				Optional<ArtificialIntelligenceAgent.Difficulty> difficulty = difficultyDialog.showAndWait();
+				if (difficulty.isEmpty()) {
+					return;
+				}
+				aiAgent = new ArtificialIntelligenceAgent(difficulty.get());
+				stopMoveAnimation();
 				hBox.getChildren().remove(gameButtonAI);
 				hBox.getChildren().add(gameButtonHuman);
 				model.setIsHumanGame(false);
 				model.initializeBoard();
-				fillBoard();
+				updateBoard();
 			});
 			gameButtonAI.setPrefSize(100, 40);
 			gameButtonAI.setStyle(" -fx-background-color: #7d4d29; -fx-text-fill: black;");
@@ -114,11 +184,12 @@ public class MancalaView extends Application {
 				alert.setTitle("2 Player Mode");
 				alert.setContentText("starting new 2 player game");
 				alert.showAndWait();
+				stopMoveAnimation();
 				hBox.getChildren().remove(gameButtonHuman);
 				hBox.getChildren().add(gameButtonAI);
 				model.setIsHumanGame(true);
 				model.initializeBoard();
-				fillBoard();
+				updateBoard();
 			});
 			gameButtonHuman.setPrefSize(100, 40);
 			gameButtonHuman.setStyle(" -fx-background-color: #7d4d29; -fx-text-fill: black;");
@@ -138,62 +209,171 @@ public class MancalaView extends Application {
 	}
 
 	/**
-	 * A method that has our AI agent make a move during a particular mancala game
+	 * A method that has our AI agent make a move during a particular mancala game.
+	 * The AI searches on a background thread, and its move is made and shown back
+	 * on the JavaFX thread once it has been found
 	 */
 	private void runAI() {
 
 		// If the user is not playing a 2-player game
 		if (!model.getIsHumanGame()) {
 
-			// Create the AI agent
-			ArtificialIntelligenceAgent aiAgent = new ArtificialIntelligenceAgent();
+			// Search a copy of the game, since the board can be reset while the AI thinks
+			MancalaModel position = new MancalaModel();
+			position.copy(model.getBoard(), model.getCurrentPlayer(), model.getP1Store(), model.getP2Store());
+			ArtificialIntelligenceAgent searchingAgent = aiAgent;
+			Task<Integer> search = new Task<>() {
+				@Override
+				protected Integer call() {
+					return searchingAgent.chooseMove(position);
+				}
+			};
+
+			// Have the AI make its move and show the stones being moved, unless the game
+			// was reset while it was searching
+			search.setOnSucceeded((event) -> {
+				if (aiSearch == search) {
+					aiSearch = null;
+					model.moveStones(search.getValue());
+					animateMove();
+				}
+			});
+			search.setOnFailed((event) -> {
+				if (aiSearch == search) {
+					aiSearch = null;
+					Alert alert = new Alert(Alert.AlertType.ERROR);
+					alert.setTitle("AI Error");
+					alert.setContentText("The AI could not choose a move: " + search.getException());
+					alert.showAndWait();
+				}
+			});
+			aiSearch = search;
+			aiExecutor.execute(search);
+		}
+	}
+
+	/**
+	 * A method that plays back the events of the most recent move one step at a
+	 * time, only changing the holes and stores the move touched, and then carries
+	 * on with the game
+	 */
+	private void animateMove() {
+		Timeline timeline = new Timeline();
+		for (int i = 0; i < model.getMoveEventCount(); i++) {
+			int moveEvent = model.getMoveEvent(i);
+			timeline.getKeyFrames()
+					.add(new KeyFrame(SOWING_STEP.multiply(i + 1), (event) -> showMoveEvent(moveEvent)));
+		}
+
+		// Alerts can not be shown while an animation is running, so carry on with the
+		// game once the animation has been handled
+		timeline.setOnFinished((event) -> {
+			moveAnimation = null;
+			Platform.runLater(this::finishMove);
+		});
+		moveAnimation = timeline;
+		timeline.play();
+	}
+
+	/**
+	 * A method that shows a single event of a move on the board
+	 * 
+	 * @param moveEvent The event, packed as described in MoveEvents
+	 */
+	private void showMoveEvent(int moveEvent) {
+		int row = MoveEvents.row(moveEvent);
+		int hole = MoveEvents.hole(moveEvent);
+		int amount = MoveEvents.amount(moveEvent);
+
+		switch (MoveEvents.type(moveEvent)) {
+		case MoveEvents.PICK_UP:
+			holeStones[row][hole].set(0);
+			break;
+		case MoveEvents.SOW:
+			holeStones[row][hole].set(holeStones[row][hole].get() + amount);
+			break;
+		case MoveEvents.STORE:
+			IntegerProperty store = (row == 0) ? p1StoreStones : p2StoreStones;
+			store.set(store.get() + amount);
+			break;
+		case MoveEvents.CAPTURE:
+			IntegerProperty capturingStore = (row == 0) ? p2StoreStones : p1StoreStones;
+			holeStones[row][hole].set(0);
+			capturingStore.set(capturingStore.get() + amount);
+			break;
+		default:
+			// Extra turns are shown by the turn prompt once the move is finished
+			break;
+		}
+	}
+
+	/**
+	 * A method that stops the animation of the move being shown, if there is one,
+	 * and throws away the AI's search, if it is searching. Stopping the animation
+	 * skips finishMove, so it is only used just before the board is reset for a
+	 * new game (initializeBoard gives player 1 the first move, so the AI is never
+	 * left waiting for a turn that is not run)
+	 */
+	private void stopMoveAnimation() {
+		if (moveAnimation != null) {
+			moveAnimation.stop();
+			moveAnimation = null;
+		}
+		if (aiSearch != null) {
+			aiSearch.cancel();
+			aiSearch = null;
+		}
+	}
+
+	/**
+	 * A method that finishes a move once it has been shown: it ends the game if the
+	 * move caused the game to end, and lets the AI play if it is the AI's turn
+	 */
+	private void finishMove() {
 
-			// Have the AI find and make an optimal move for itself
-			int aiMove = aiAgent.optimalMove(model, "");
-			model.moveStones(aiMove);
+		// Make sure that the board matches the model
+		updateBoard();
 
-			// Recreate the board to reflect the changes made from stones being moved
-			fillBoard();
+		// If the move caused the game to end...
+		if (model.isWinningState()) {
 
-			// If the move caused the game to end...
-			if (model.isWinningState()) {
+			// Add remaining stones to the other player's total
+			model.addRemainingStonesToPlayersStore();
 
-				// Add remaining stones to the other player's total
-				model.addRemainingStonesToPlayersStore();
-				
-				fillBoard();
+			updateBoard();
 
-				// And alert the players that the game is over, stating who won or whether there
-				// was a tie
-				Alert alert = new Alert(Alert.AlertType.INFORMATION);
-				alert.setTitle("Game Over");
-				alert.setContentText(model.displayWinner());
-				alert.showAndWait();
+			// And alert the players that the game is over, stating who won or whether there
+			// was a tie
+			Alert alert = new Alert(Alert.AlertType.INFORMATION);
+			alert.setTitle("Game Over");
+			alert.setContentText(model.displayWinner());
+			alert.showAndWait();
 
-				// Start a new game afterwards
-				Alert newGameAlert = new Alert(Alert.AlertType.INFORMATION);
-				newGameAlert.setTitle("Starting new game");
-				newGameAlert.setContentText("A new game is starting...");
-				newGameAlert.showAndWait();
-				model.initializeBoard(); // Reset the board for the new game
-				fillBoard();
-			}
+			// Start a new game afterwards
+			Alert newGameAlert = new Alert(Alert.AlertType.INFORMATION);
+			newGameAlert.setTitle("Starting new game");
+			newGameAlert.setContentText("A new game is starting...");
+			newGameAlert.showAndWait();
+			model.initializeBoard(); // Reset the board for the new game
+			updateBoard();
+		}
 
+		// Have the AI play when it is its turn
+		if (!model.getIsHumanGame() && model.getCurrentPlayer() == 1) {
+			runAI();
 		}
 	}
 
 	/**
 	 * A method that instantiates and sets-up the mancala board of the GUI for user
-	 * interactivity
+	 * interactivity. The board is only created once; afterwards, updateBoard()
+	 * changes the numbers shown on it
 	 */
-	public void fillBoard() {
+	private void createBoard() {
 
 		// Create a GridPane object to evenly format the mancala board
 		GridPane grid = new GridPane();
 
-		// Create the mancala board using position values from the model
-		int board[][] = model.getBoard();
-
 		// Create a counter, which will give every position on the board a unique
 		// identifier
 		int counter = 0;
@@ -202,8 +382,11 @@ public class MancalaView extends Application {
 		for (int row = 0; row < 2; row++) {
 			for (int col = 0; col < 6; col++) {
 
-				// Create and format buttons for each position
-				Button button = new Button(board[row][col] + "");
+				// Create and format buttons for each position, showing the number of stones
+				// in the position
+				holeStones[row][col] = new SimpleIntegerProperty();
+				Button button = new Button();
+				button.textProperty().bind(holeStones[row][col].asString());
 				button.setStyle(" -fx-background-color: #7d4d29; -fx-text-fill: black;  -fx-background-radius: 150;\n"
 						+ "    -fx-pref-width: 70;\n" + "    -fx-pref-height: 70;\n");
 				button.setFont(Font.font("Verdana", FontWeight.NORMAL, 20));
@@ -221,6 +404,11 @@ public class MancalaView extends Application {
 				// Set up the event handling for the buttons
 				button.setOnAction((event) -> {
 
+					// Ignore clicks while a move is being shown or the AI is searching
+					if (moveAnimation != null || aiSearch != null) {
+						return;
+					}
+
 					// If the current player clicked on the wrong side of the board somewhere, alert
 					// them (since the AI will not choose an invalid move this is only for the human
 					// players)
@@ -234,7 +422,7 @@ public class MancalaView extends Application {
 
 						// Otherwise, if the current player clicked on a position with no stones, alert
 						// them of that
-					} else if (board[finalRow][finalCol] == 0) {
+					} else if (model.getBoard()[finalRow][finalCol] == 0) {
 						Alert alert = new Alert(Alert.AlertType.INFORMATION);
 						alert.setTitle("Try Again");
 						alert.setContentText("You can not select holes that are zero.");
@@ -246,43 +434,8 @@ public class MancalaView extends Application {
 								|| (model.getCurrentPlayer() == 1 && model.getIsHumanGame())) {
 							model.moveStones(finalCounter);
 
-							// Recreate the board to reflect the changes made from stones being moved
-							fillBoard();
-
-							// If the move caused the game to end...
-							if (model.isWinningState()) {
-
-								// Add remaining stones to the other player's total
-								model.addRemainingStonesToPlayersStore();
-								
-								fillBoard();
-								
-								// And alert the players that the game is over, stating who won or whether there
-								// was a tie
-								Alert alert = new Alert(Alert.AlertType.INFORMATION);
-								alert.setTitle("Game Over");
-								alert.setContentText(model.displayWinner());
-								alert.showAndWait();
-
-								// Start a new game afterwards
-								Alert newGameAlert = new Alert(Alert.AlertType.INFORMATION);
-								newGameAlert.setTitle("Starting new game");
-								newGameAlert.setContentText("A new game is starting...");
-								newGameAlert.showAndWait();
-								model.initializeBoard(); // Reset the board for the new game
-								fillBoard();
-							}
-						}
-
-						// If the user is not playing a 2-player game...
-						if (!model.getIsHumanGame()) {
-
-							// Have the AI play when it is its turn
-							while (model.getCurrentPlayer() == 1) {
-								System.out.println("AI Turn:\n");
-								runAI();
-								System.out.println("\n-------------\n");
-							}
+							// Show the stones being moved (the AI plays once the move has been shown)
+							animateMove();
 						}
 					}
 				});
@@ -299,6 +452,23 @@ public class MancalaView extends Application {
 		setUpPlayerText(grid);
 	}
 
+	/**
+	 * A method that updates the numbers shown on the board, the players' scores,
+	 * and whose turn it is to match the model
+	 */
+	public void updateBoard() {
+		int board[][] = model.getBoard();
+		for (int row = 0; row < 2; row++) {
+			for (int col = 0; col < 6; col++) {
+				holeStones[row][col].set(board[row][col]);
+			}
+		}
+		p1StoreStones.set(model.getP1Store());
+		p2StoreStones.set(model.getP2Store());
+		humanGame.set(model.getIsHumanGame());
+		playerTurnPrompt.set(displayUserPrompt(model.getCurrentPlayer()));
+	}
+
 	/**
 	 * A method that places game and player information on the GUI
 	 * 
@@ -320,10 +490,8 @@ public class MancalaView extends Application {
 		vBox.getChildren().add(grid);
 
 		// Add some text to distinguish player 2's side of the board from player 1's
-		Text p2 = new Text("Player 2 Side");
-		if (!model.getIsHumanGame()) {
-			p2 = new Text("AI Side");
-		}
+		Text p2 = new Text();
+		p2.textProperty().bind(Bindings.when(humanGame).then("Player 2 Side").otherwise("AI Side"));
 		p2.setFont(Font.font("Verdana", FontWeight.BOLD, 20));
 		vBox.getChildren().add(p2);
 
@@ -331,22 +499,22 @@ public class MancalaView extends Application {
 		root.setCenter(vBox);
 
 		// Add the finishing touches to the display, starting with player scores
-		Text player1 = new Text("     P1:     \n      " + model.getP1Store() + "        \n         ");
+		Text player1 = new Text();
+		player1.textProperty().bind(Bindings.concat("     P1:     \n      ", p1StoreStones, "        \n         "));
 		player1.setFont(Font.font("Verdana", FontWeight.BOLD, 20));
 		BorderPane.setMargin(player1, new Insets(95, 12, 20, 12));
 		root.setLeft(player1);
 
-		Text player2 = new Text("P2:  \n " + model.getP2Store() + "       \n            ");
-		if (!model.getIsHumanGame()) {
-			player2 = new Text("AI:  \n " + model.getP2Store() + "       \n            ");
-		}
-
+		Text player2 = new Text();
+		player2.textProperty().bind(Bindings.concat(Bindings.when(humanGame).then("P2").otherwise("AI"),
+				":  \n ", p2StoreStones, "       \n            "));
 		player2.setFont(Font.font("Verdana", FontWeight.BOLD, 20));
 		BorderPane.setMargin(player2, new Insets(95, 12, 20, 12));
 		root.setRight(player2);
 
 		// Also add a header to the display that notifies users whose turn it is
-		Text playerTurn = new Text(displayUserPrompt(model.getCurrentPlayer()));
+		Text playerTurn = new Text();
+		playerTurn.textProperty().bind(playerTurnPrompt);
 		playerTurn.setFont(Font.font("Verdana", FontWeight.BOLD, 30));
 		BorderPane.setAlignment(playerTurn, Pos.CENTER);
 		BorderPane.setMargin(playerTurn, new Insets(12, 12, 12, 12));
@@ -3,5 +3,6 @@ module mancala {
 	requires javafx.controls;
 	requires javafx.base;
 	requires java.desktop;
-	opens mancala to javafx.graphics;
+	requires mancala.engine;
+	opens mancala.view to javafx.graphics;
 }
\ No newline at end of file